@@ -0,0 +1,106 @@
+package com.app.chat.config;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.app.chat.repository.ConversationSummaryRepository;
+import com.app.chat.repository.MessageRepository;
+
+@Component
+public class DataBackfillRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DataBackfillRunner.class);
+    private static final int BATCH_SIZE = 10_000;
+    private static final String COLUMN_NULLABLE_SQL = """
+            SELECT is_nullable FROM information_schema.columns
+            WHERE table_schema = SCHEMA() AND table_name = ? AND column_name = ?
+            """;
+    private static final String COPY_RECEIPTS_SQL = """
+            INSERT INTO conversation_receipts (owner_id, peer_id, delivered_through_id, read_through_id)
+            SELECT owner_id, peer_id, delivered_through_id, read_through_id
+            FROM conversation_summaries s
+            WHERE s.delivered_through_id > 0
+              AND NOT EXISTS (
+                SELECT 1 FROM conversation_receipts r WHERE r.owner_id = s.owner_id AND r.peer_id = s.peer_id
+              )
+            """;
+
+    private final MessageRepository messageRepository;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    public DataBackfillRunner(
+            MessageRepository messageRepository,
+            ConversationSummaryRepository conversationSummaryRepository,
+            TransactionTemplate transactionTemplate,
+            JdbcTemplate jdbcTemplate) {
+        this.messageRepository = messageRepository;
+        this.conversationSummaryRepository = conversationSummaryRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        allowGroupMessagesWithoutReceiver();
+        moveReceiptsOffSummaries();
+        long total = 0;
+        int updated;
+        do {
+            updated = transactionTemplate.execute(status -> messageRepository.backfillConversationKeys(BATCH_SIZE));
+            total += updated;
+        } while (updated == BATCH_SIZE);
+        if (total > 0) {
+            log.info("Backfilled conversation keys for {} messages", total);
+        }
+        backfillConversationSummaries();
+    }
+
+    private void allowGroupMessagesWithoutReceiver() {
+        // ddl-auto=update adds columns but never relaxes constraints, so databases created before group messages
+        // still have receiver_id NOT NULL and reject every group message insert.
+        List<String> nullable = jdbcTemplate.queryForList(COLUMN_NULLABLE_SQL, String.class, "message", "receiver_id");
+        if (nullable.size() == 1 && "NO".equalsIgnoreCase(nullable.get(0))) {
+            jdbcTemplate.execute("ALTER TABLE message MODIFY receiver_id BIGINT NULL");
+            log.info("Made message.receiver_id nullable for group messages");
+        }
+    }
+
+    private void moveReceiptsOffSummaries() {
+        // Watermarks used to live on the inbox row, which a clear deletes. Their old NOT NULL columns would also
+        // reject every new inbox row now that nothing writes them.
+        boolean delivered = hasColumn("conversation_summaries", "delivered_through_id");
+        boolean read = hasColumn("conversation_summaries", "read_through_id");
+        if (delivered && read) {
+            int moved = transactionTemplate.execute(status -> jdbcTemplate.update(COPY_RECEIPTS_SQL));
+            log.info("Moved {} read receipts off conversation summaries", moved);
+        }
+        if (delivered) {
+            jdbcTemplate.execute("ALTER TABLE conversation_summaries DROP COLUMN delivered_through_id");
+        }
+        if (read) {
+            jdbcTemplate.execute("ALTER TABLE conversation_summaries DROP COLUMN read_through_id");
+        }
+    }
+
+    private boolean hasColumn(String table, String column) {
+        return !jdbcTemplate.queryForList(COLUMN_NULLABLE_SQL, String.class, table, column).isEmpty();
+    }
+
+    private void backfillConversationSummaries() {
+        if (conversationSummaryRepository.count() > 0 || messageRepository.count() == 0) {
+            return;
+        }
+        int created = transactionTemplate.execute(status -> conversationSummaryRepository.backfillFromMessages(true)
+                + conversationSummaryRepository.backfillFromMessages(false));
+        log.info("Built {} conversation summaries from message history", created);
+    }
+}
@@ -0,0 +1,76 @@
+package com.app.chat.config;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import com.app.chat.repository.GroupMemberRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+@Component
+public class GroupTopicDeliveryInterceptor implements ExecutorChannelInterceptor {
+
+    private static final Pattern GROUP_TOPIC = Pattern.compile("/topic/group\\.(\\d{1,18})");
+
+    private final LoadingCache<String, Boolean> membership;
+
+    public GroupTopicDeliveryInterceptor(
+            GroupMemberRepository groupMemberRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.websocket.group-membership.max-size:10000}") long maxSize,
+            @Value("${app.websocket.group-membership.ttl-ms:5000}") long ttlMs) {
+        this.membership = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build(key -> {
+                    int separator = key.indexOf(':');
+                    return groupMemberRepository.isMember(
+                            Long.valueOf(key.substring(0, separator)),
+                            key.substring(separator + 1));
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, membership, "group-membership");
+    }
+
+    public void forget(Long groupId, String username) {
+        membership.invalidate(groupId + ":" + username);
+    }
+
+    @Override
+    public Message<?> beforeHandle(
+            @NonNull Message<?> message,
+            @NonNull MessageChannel channel,
+            @NonNull MessageHandler handler) {
+        // Removing a member only unsubscribes the sessions on the node that handled the removal; sessions held by
+        // other nodes stay subscribed at the broker. Each node therefore re-checks membership before writing a
+        // group message to one of its own sessions, so those are cut off within the cache TTL.
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        if (destination == null || user == null) {
+            return message;
+        }
+        Matcher groupTopic = GROUP_TOPIC.matcher(destination);
+        if (!groupTopic.matches() || membership.get(groupTopic.group(1) + ":" + user.getName())) {
+            return message;
+        }
+        return null;
+    }
+}
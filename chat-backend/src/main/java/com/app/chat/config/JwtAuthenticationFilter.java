@@ -11,6 +11,9 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,10 +24,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final MeterRegistry meterRegistry;
 
-    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(
+            JwtService jwtService,
+            UserDetailsService userDetailsService,
+            MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -45,31 +53,41 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        String token = authHeader.substring(7);
-        String username;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = authenticate(authHeader.substring(7), request);
+        sample.stop(meterRegistry.timer("auth.jwt.filter", "outcome", outcome));
+
+        filterChain.doFilter(request, response);
+    }
+
+    private String authenticate(String token, HttpServletRequest request) {
+        Claims claims;
         try {
-            username = jwtService.extractUsername(token);
+            claims = jwtService.parseClaims(token);
         } catch (Exception ex) {
-            filterChain.doFilter(request, response);
-            return;
+            return "invalid_token";
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            try {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                if (jwtService.isTokenValid(token, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities());
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
-            } catch (Exception ex) {
-                // Ignore invalid user/token and continue without authentication.
-            }
+        String username = claims.getSubject();
+        if (username == null || SecurityContextHolder.getContext().getAuthentication() != null) {
+            return "skipped";
         }
 
-        filterChain.doFilter(request, response);
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            if (!jwtService.isTokenValid(claims, userDetails)) {
+                return "invalid_token";
+            }
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails,
+                    null,
+                    userDetails.getAuthorities());
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+            return "authenticated";
+        } catch (Exception ex) {
+            // Ignore invalid user/token and continue without authentication.
+            return "unknown_user";
+        }
     }
 }
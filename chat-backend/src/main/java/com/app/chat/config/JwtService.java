@@ -1,7 +1,10 @@
 package com.app.chat.config;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
 
 import javax.crypto.SecretKey;
 
@@ -9,21 +12,48 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 @Service
 public class JwtService {
 
     private final SecretKey key;
     private final long jwtExpirationMs;
+    private final JwtParser parser;
+    private final Cache<String, Claims> verifiedTokens;
 
     public JwtService(
             @Value("${app.jwt.secret:chat-app-super-secret-key-that-is-at-least-32-bytes-long}") String secret,
-            @Value("${app.jwt.expiration-ms:86400000}") long jwtExpirationMs) {
+            @Value("${app.jwt.expiration-ms:86400000}") long jwtExpirationMs,
+            @Value("${app.jwt.verified-cache.enabled:true}") boolean verifiedCacheEnabled,
+            @Value("${app.jwt.verified-cache.max-size:20000}") long verifiedCacheMaxSize,
+            @Value("${app.jwt.verified-cache.ttl-ms:600000}") long verifiedCacheTtlMs,
+            MeterRegistry meterRegistry) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.jwtExpirationMs = jwtExpirationMs;
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
+        if (verifiedCacheEnabled) {
+            this.verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(verifiedCacheMaxSize)
+                    .expireAfter(untilTokenExpiry(verifiedCacheTtlMs))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt_verified");
+        } else {
+            this.verifiedTokens = null;
+        }
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -39,23 +69,67 @@ public class JwtService {
     }
 
     public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject();
+        return parseClaims(token).getSubject();
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+    public Claims parseClaims(String token) {
+        if (verifiedTokens == null) {
+            return extractAllClaims(token);
+        }
+
+        String tokenHash = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            if (!isTokenExpired(cached)) {
+                return cached;
+            }
+            verifiedTokens.invalidate(tokenHash);
+            throw new ExpiredJwtException(null, cached, "JWT expired");
+        }
+
+        Claims claims = extractAllClaims(token);
+        verifiedTokens.put(tokenHash, claims);
+        return claims;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractAllClaims(token).getExpiration().before(new Date());
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
+    }
+
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static Expiry<String, Claims> untilTokenExpiry(long maxTtlMs) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String tokenHash, Claims claims, long currentTime) {
+                long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+                return Math.max(0, Math.min(remainingMs, maxTtlMs)) * 1_000_000L;
+            }
+
+            @Override
+            public long expireAfterUpdate(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+                return expireAfterCreate(tokenHash, claims, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
     }
 }
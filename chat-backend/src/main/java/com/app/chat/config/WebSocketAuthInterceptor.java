@@ -0,0 +1,134 @@
+package com.app.chat.config;
+
+import java.security.Principal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import com.app.chat.repository.GroupMemberRepository;
+
+import io.jsonwebtoken.Claims;
+
+@Component
+public class WebSocketAuthInterceptor implements ExecutorChannelInterceptor {
+
+    private static final Pattern GROUP_TOPIC = Pattern.compile("/topic/group\\.(\\d{1,18})");
+    private static final String USER_QUEUE_PREFIX = "/user/queue/";
+    private static final Pattern PATTERN_CHARACTERS = Pattern.compile("[*?#{}]");
+
+    private final JwtService jwtService;
+    private final UserDetailsService userDetailsService;
+    private final GroupMemberRepository groupMemberRepository;
+
+    public WebSocketAuthInterceptor(
+            JwtService jwtService,
+            UserDetailsService userDetailsService,
+            GroupMemberRepository groupMemberRepository) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.groupMemberRepository = groupMemberRepository;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            authorizeSubscription(accessor);
+            return message;
+        }
+        if (accessor != null && StompCommand.SEND.equals(accessor.getCommand())) {
+            authorizeSend(accessor);
+            return message;
+        }
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return message;
+        }
+
+        try {
+            Claims claims = jwtService.parseClaims(authHeader.substring(7));
+            UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            if (jwtService.isTokenValid(claims, userDetails)) {
+                accessor.setUser(new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
+                        userDetails.getAuthorities()));
+            }
+        } catch (Exception ex) {
+            // Leave the session anonymous; user destinations will not resolve for it.
+        }
+        return message;
+    }
+
+    private static void authorizeSend(StompHeaderAccessor accessor) {
+        // A SEND straight to a broker destination would skip the controllers, so clients could forge group
+        // messages or, in relay mode, inject into the nodes' user-destination and registry broadcasts.
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(WebSocketConfig.APPLICATION_PREFIX + "/")) {
+            throw new AccessDeniedException("Not allowed to send to " + destination);
+        }
+    }
+
+    private void authorizeSubscription(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        Principal user = accessor.getUser();
+        if (user == null || destination == null || PATTERN_CHARACTERS.matcher(destination).find()) {
+            // The brokers match wildcard destinations, so a pattern could fan in every group's or user's traffic.
+            throw new AccessDeniedException("Not allowed to subscribe to " + destination);
+        }
+        if (WebSocketConfig.USER_DESTINATION_BROADCAST.equals(destination)
+                || WebSocketConfig.USER_REGISTRY_BROADCAST.equals(destination)) {
+            // These carry other users' private messages and everyone's sessions between nodes.
+            throw new AccessDeniedException("Not allowed to subscribe to " + destination);
+        }
+        if (destination.startsWith(USER_QUEUE_PREFIX)) {
+            return;
+        }
+        // Group topics carry every message of the group, so only members may listen. Nothing else is subscribable.
+        Matcher groupTopic = GROUP_TOPIC.matcher(destination);
+        if (groupTopic.matches() && groupMemberRepository.isMember(Long.valueOf(groupTopic.group(1)), user.getName())) {
+            return;
+        }
+        throw new AccessDeniedException("Not allowed to subscribe to " + destination);
+    }
+
+    @Override
+    public Message<?> beforeHandle(
+            @NonNull Message<?> message,
+            @NonNull MessageChannel channel,
+            @NonNull MessageHandler handler) {
+        Principal user = StompHeaderAccessor.getUser(message.getHeaders());
+        if (user instanceof Authentication authentication) {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(
+            @NonNull Message<?> message,
+            @NonNull MessageChannel channel,
+            @NonNull MessageHandler handler,
+            Exception ex) {
+        SecurityContextHolder.clearContext();
+    }
+}
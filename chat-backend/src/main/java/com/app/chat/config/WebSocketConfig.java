@@ -1,6 +1,8 @@
 package com.app.chat.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -10,6 +12,39 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // Relay-mode broadcasts between nodes. They sit under the broker prefix, so clients must never reach them.
+    static final String USER_DESTINATION_BROADCAST = "/topic/unresolved-user-destination";
+    static final String USER_REGISTRY_BROADCAST = "/topic/simp-user-registry";
+    static final String APPLICATION_PREFIX = "/app";
+
+    private final WebSocketAuthInterceptor webSocketAuthInterceptor;
+    private final GroupTopicDeliveryInterceptor groupTopicDeliveryInterceptor;
+    private final String brokerMode;
+    private final String relayHost;
+    private final int relayPort;
+    private final String relayLogin;
+    private final String relayPasscode;
+    private final String relayVirtualHost;
+
+    public WebSocketConfig(
+            WebSocketAuthInterceptor webSocketAuthInterceptor,
+            GroupTopicDeliveryInterceptor groupTopicDeliveryInterceptor,
+            @Value("${app.websocket.broker:simple}") String brokerMode,
+            @Value("${app.websocket.relay.host:localhost}") String relayHost,
+            @Value("${app.websocket.relay.port:61613}") int relayPort,
+            @Value("${app.websocket.relay.login:guest}") String relayLogin,
+            @Value("${app.websocket.relay.passcode:guest}") String relayPasscode,
+            @Value("${app.websocket.relay.virtual-host:}") String relayVirtualHost) {
+        this.webSocketAuthInterceptor = webSocketAuthInterceptor;
+        this.groupTopicDeliveryInterceptor = groupTopicDeliveryInterceptor;
+        this.brokerMode = brokerMode;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.relayLogin = relayLogin;
+        this.relayPasscode = relayPasscode;
+        this.relayVirtualHost = relayVirtualHost;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
@@ -17,8 +52,35 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic", "/queue");
-        registry.setApplicationDestinationPrefixes("/app");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            var relay = registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setUserDestinationBroadcast(USER_DESTINATION_BROADCAST)
+                    .setUserRegistryBroadcast(USER_REGISTRY_BROADCAST);
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            registry.enableSimpleBroker("/topic", "/queue");
+        }
+        registry.setApplicationDestinationPrefixes(APPLICATION_PREFIX);
         registry.setUserDestinationPrefix("/user");
     }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(webSocketAuthInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            registration.interceptors(groupTopicDeliveryInterceptor);
+        }
+    }
 }
@@ -1,22 +1,27 @@
 package com.app.chat.controller;
 
-import java.util.List;
 import java.util.Map;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.app.chat.dto.ChatMessageDTO;
+import com.app.chat.dto.ReceiptDTO;
 import com.app.chat.dto.TypingStatusDTO;
+import com.app.chat.service.ChatExportService;
 import com.app.chat.service.ChatService;
 
 @RestController
@@ -24,9 +29,11 @@ import com.app.chat.service.ChatService;
 public class ChatController {
 
     private final ChatService chatService;
+    private final ChatExportService chatExportService;
 
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, ChatExportService chatExportService) {
         this.chatService = chatService;
+        this.chatExportService = chatExportService;
     }
 
     @MessageMapping("/chat.send")
@@ -34,9 +41,66 @@ public class ChatController {
         chatService.sendMessage(messageDTO);
     }
 
+    @MessageMapping("/chat.receipt")
+    public void receipt(@Payload ReceiptDTO receiptDTO) {
+        chatService.acknowledge(receiptDTO);
+    }
+
     @GetMapping("/messages")
-    public ResponseEntity<List<Map<String, Object>>> messages(@RequestParam String userId) {
-        return ResponseEntity.ok(chatService.getConversation(userId));
+    public ResponseEntity<Map<String, Object>> messages(
+            @RequestParam String userId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(chatService.getConversation(userId, before, after, limit));
+    }
+
+    @GetMapping("/conversations")
+    public ResponseEntity<Map<String, Object>> conversations(
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(chatService.getInbox(before, limit));
+    }
+
+    @PostMapping("/read")
+    public ResponseEntity<Map<String, String>> markRead(
+            @RequestParam String userId,
+            @RequestParam(required = false) Long messageId) {
+        chatService.markConversationRead(userId, messageId);
+        return ResponseEntity.ok(Map.of("status", "ok"));
+    }
+
+    @PostMapping("/receipts")
+    public ResponseEntity<Map<String, String>> receipts(@Validated @RequestBody ReceiptDTO receiptDTO) {
+        chatService.acknowledge(receiptDTO);
+        return ResponseEntity.ok(Map.of("status", "ok"));
+    }
+
+    @GetMapping("/sync")
+    public ResponseEntity<Map<String, Object>> sync(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(chatService.sync(cursor, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(chatService.search(q, offset, limit));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam String userId,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody body = chatExportService.exportConversation(userId, gzip);
+        String fileName = "chat-" + userId + (gzip ? ".ndjson.gz" : ".ndjson");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/send")
@@ -52,19 +116,25 @@ public class ChatController {
 
     @DeleteMapping("/messages")
     public ResponseEntity<Map<String, Object>> deleteConversation(@RequestParam String userId) {
-        int deleted = chatService.deleteConversation(userId);
+        long deleted = chatService.deleteConversation(userId);
         return ResponseEntity.ok(Map.of("status", "ok", "deletedCount", deleted));
     }
 
+    @DeleteMapping("/messages/{messageId}")
+    public ResponseEntity<Map<String, String>> deleteMessage(@PathVariable Long messageId) {
+        chatService.deleteMessage(messageId);
+        return ResponseEntity.ok(Map.of("status", "ok"));
+    }
+
     @PostMapping("/messages/delete")
     public ResponseEntity<Map<String, Object>> deleteConversationViaPost(@RequestParam String userId) {
-        int deleted = chatService.deleteConversation(userId);
+        long deleted = chatService.deleteConversation(userId);
         return ResponseEntity.ok(Map.of("status", "ok", "deletedCount", deleted));
     }
 
     @GetMapping("/delete")
     public ResponseEntity<Map<String, Object>> deleteConversationViaGet(@RequestParam String userId) {
-        int deleted = chatService.deleteConversation(userId);
+        long deleted = chatService.deleteConversation(userId);
         return ResponseEntity.ok(Map.of("status", "ok", "deletedCount", deleted));
     }
 }
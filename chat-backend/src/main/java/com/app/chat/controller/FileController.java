@@ -1,32 +1,63 @@
 package com.app.chat.controller;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.app.chat.service.FileService;
+import com.app.chat.service.ThumbnailService;
+import com.app.chat.service.UploadSessionService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/files")
 public class FileController {
 
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable();
+
     private final FileService fileService;
+    private final UploadSessionService uploadSessionService;
+    private final ThumbnailService thumbnailService;
+    private final long sendfileMinSize;
 
-    public FileController(FileService fileService) {
+    public FileController(
+            FileService fileService,
+            UploadSessionService uploadSessionService,
+            ThumbnailService thumbnailService,
+            @Value("${app.files.sendfile-min-size:49152}") long sendfileMinSize) {
         this.fileService = fileService;
+        this.uploadSessionService = uploadSessionService;
+        this.thumbnailService = thumbnailService;
+        this.sendfileMinSize = sendfileMinSize;
     }
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -34,17 +65,122 @@ public class FileController {
         return ResponseEntity.ok(fileService.upload(file));
     }
 
+    @PostMapping("/stream")
+    public ResponseEntity<Map<String, Object>> uploadStream(
+            @RequestParam("fileName") String fileName,
+            HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(fileService.uploadStream(
+                request.getInputStream(),
+                fileName,
+                request.getContentLengthLong()));
+    }
+
+    @PostMapping("/sessions")
+    public ResponseEntity<Map<String, Object>> createSession(@RequestParam String fileName, @RequestParam long size) {
+        return ResponseEntity.ok(uploadSessionService.createSession(fileName, size));
+    }
+
+    @GetMapping("/sessions/{sessionId}")
+    public ResponseEntity<Map<String, Object>> getSession(@PathVariable String sessionId) {
+        return ResponseEntity.ok(uploadSessionService.getSession(sessionId));
+    }
+
+    @PutMapping("/sessions/{sessionId}")
+    public ResponseEntity<Map<String, Object>> uploadChunk(
+            @PathVariable String sessionId,
+            @RequestParam long offset,
+            HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(uploadSessionService.writeChunk(sessionId, offset, request.getInputStream()));
+    }
+
+    @PostMapping("/sessions/{sessionId}/complete")
+    public ResponseEntity<Map<String, Object>> completeSession(@PathVariable String sessionId) {
+        return ResponseEntity.ok(uploadSessionService.complete(sessionId));
+    }
+
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<Map<String, String>> abortSession(@PathVariable String sessionId) {
+        uploadSessionService.abort(sessionId);
+        return ResponseEntity.ok(Map.of("status", "ok"));
+    }
+
     @GetMapping("/{fileName}")
-    public ResponseEntity<Resource> download(@PathVariable String fileName) throws Exception {
+    public ResponseEntity<Resource> download(
+            @PathVariable String fileName,
+            @RequestParam(required = false) String variant,
+            ServletWebRequest webRequest) throws IOException {
         Path path = fileService.resolveFile(fileName);
-        if (!Files.exists(path)) {
+        if (!Files.isRegularFile(path)) {
             return ResponseEntity.notFound().build();
         }
 
-        Resource resource = new UrlResource(path.toUri());
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + path.getFileName() + "\"")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(resource);
+        MediaType contentType = fileService.contentType(fileName, path);
+        CacheControl cacheControl = IMMUTABLE;
+        if (variant != null) {
+            Path variantPath = thumbnailService.variantPath(path, variant);
+            if (Files.isRegularFile(variantPath)) {
+                path = variantPath;
+                contentType = MediaType.IMAGE_JPEG;
+            } else {
+                // Not generated yet (or not an image): serve the original, but let clients pick up the variant later.
+                thumbnailService.schedule(path, fileName);
+                cacheControl = CacheControl.noCache();
+            }
+        }
+
+        long size = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String etag = fileService.etag(path, size, lastModified);
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDisposition(ContentDisposition.inline().filename(fileName).build());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setContentType(contentType);
+        headers.setETag(etag);
+        headers.setLastModified(lastModified);
+        headers.setCacheControl(cacheControl);
+
+        HttpServletRequest request = webRequest.getRequest();
+        if (size >= sendfileMinSize && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            return sendfile(request, headers, path, size);
+        }
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(path));
+    }
+
+    private ResponseEntity<Resource> sendfile(HttpServletRequest request, HttpHeaders headers, Path path, long size) {
+        HttpStatus status = HttpStatus.OK;
+        long start = 0;
+        long end = size;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException ex) {
+                ranges = List.of();
+            }
+            if (ranges.size() != 1) {
+                // Multipart and malformed ranges go through Spring's ResourceRegion handling.
+                return ResponseEntity.ok().headers(headers).body(new FileSystemResource(path));
+            }
+            start = ranges.get(0).getRangeStart(size);
+            end = ranges.get(0).getRangeEnd(size) + 1;
+            if (start >= size) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size);
+        }
+
+        // Tomcat writes the file straight from the page cache to the socket once the handler returns.
+        request.setAttribute(SENDFILE_FILENAME_ATTR, path.toString());
+        request.setAttribute(SENDFILE_START_ATTR, start);
+        request.setAttribute(SENDFILE_END_ATTR, end);
+        return ResponseEntity.status(status).headers(headers).contentLength(end - start).build();
     }
 }
@@ -0,0 +1,83 @@
+package com.app.chat.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.app.chat.dto.CreateGroupDTO;
+import com.app.chat.dto.GroupMessageDTO;
+import com.app.chat.service.ChatService;
+import com.app.chat.service.GroupService;
+
+@RestController
+@RequestMapping("/api/groups")
+public class GroupController {
+
+    private final GroupService groupService;
+    private final ChatService chatService;
+
+    public GroupController(GroupService groupService, ChatService chatService) {
+        this.groupService = groupService;
+        this.chatService = chatService;
+    }
+
+    @MessageMapping("/group.send")
+    public void sendMessage(@Payload GroupMessageDTO messageDTO) {
+        chatService.sendGroupMessage(messageDTO);
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> create(@Validated @RequestBody CreateGroupDTO groupDTO) {
+        return ResponseEntity.ok(groupService.createGroup(groupDTO));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> groups() {
+        return ResponseEntity.ok(groupService.getGroups());
+    }
+
+    @GetMapping("/{groupId}")
+    public ResponseEntity<Map<String, Object>> group(@PathVariable Long groupId) {
+        return ResponseEntity.ok(groupService.getGroup(groupId));
+    }
+
+    @PostMapping("/{groupId}/members")
+    public ResponseEntity<Map<String, Object>> addMember(@PathVariable Long groupId, @RequestParam String userId) {
+        return ResponseEntity.ok(groupService.addMember(groupId, userId));
+    }
+
+    @DeleteMapping("/{groupId}/members/{userId}")
+    public ResponseEntity<Map<String, String>> removeMember(@PathVariable Long groupId, @PathVariable String userId) {
+        groupService.removeMember(groupId, userId);
+        return ResponseEntity.ok(Map.of("status", "ok"));
+    }
+
+    @GetMapping("/{groupId}/messages")
+    public ResponseEntity<Map<String, Object>> messages(
+            @PathVariable Long groupId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(chatService.getGroupConversation(groupId, before, after, limit));
+    }
+
+    @PostMapping("/{groupId}/messages")
+    public ResponseEntity<Map<String, Object>> send(
+            @PathVariable Long groupId,
+            @RequestBody GroupMessageDTO messageDTO) {
+        messageDTO.setGroupId(groupId);
+        return ResponseEntity.ok(chatService.sendGroupMessage(messageDTO));
+    }
+}
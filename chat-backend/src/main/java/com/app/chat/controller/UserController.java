@@ -1,12 +1,12 @@
 package com.app.chat.controller;
 
-import java.time.Instant;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -37,6 +37,13 @@ public class UserController {
         return ResponseEntity.ok(userService.searchByUserId(userId));
     }
 
+    @GetMapping("/typeahead")
+    public ResponseEntity<List<Map<String, String>>> typeahead(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(userService.typeahead(q, limit));
+    }
+
     @PostMapping("/presence/heartbeat")
     public ResponseEntity<Map<String, String>> heartbeat() {
         User me = userService.getCurrentUser();
@@ -46,12 +53,22 @@ public class UserController {
 
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> status(@RequestParam String userId) {
-        boolean online = presenceService.isOnline(userId);
-        Instant lastSeen = presenceService.getLastSeen(userId);
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("userId", userId);
-        payload.put("online", online);
-        payload.put("lastSeenAt", lastSeen == null ? null : lastSeen.toString());
-        return ResponseEntity.ok(payload);
+        return ResponseEntity.ok(presenceService.getStatus(userId));
+    }
+
+    @GetMapping("/status/batch")
+    public ResponseEntity<List<Map<String, Object>>> statusBatch(@RequestParam List<String> userIds) {
+        return ResponseEntity.ok(presenceService.getStatuses(userIds));
+    }
+
+    @PostMapping("/status/batch")
+    public ResponseEntity<List<Map<String, Object>>> statusBatchViaPost(@RequestBody List<String> userIds) {
+        return ResponseEntity.ok(presenceService.getStatuses(userIds));
+    }
+
+    @GetMapping("/status/friends")
+    public ResponseEntity<List<Map<String, Object>>> friendStatuses() {
+        User me = userService.getCurrentUser();
+        return ResponseEntity.ok(presenceService.getFriendStatuses(me));
     }
 }
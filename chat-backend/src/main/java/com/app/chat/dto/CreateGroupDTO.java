@@ -0,0 +1,20 @@
+package com.app.chat.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CreateGroupDTO {
+
+    @NotBlank
+    @Size(max = 100)
+    private String name;
+
+    private List<String> memberUserIds = new ArrayList<>();
+}
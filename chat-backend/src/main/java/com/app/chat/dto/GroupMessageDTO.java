@@ -0,0 +1,21 @@
+package com.app.chat.dto;
+
+import com.app.chat.entity.Message.MessageType;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class GroupMessageDTO {
+
+    @NotNull
+    private Long groupId;
+
+    private String content;
+
+    private String fileUrl;
+
+    private MessageType type = MessageType.TEXT;
+}
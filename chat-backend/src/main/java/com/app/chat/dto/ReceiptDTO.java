@@ -0,0 +1,20 @@
+package com.app.chat.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ReceiptDTO {
+
+    @NotBlank
+    private String peerUserId;
+
+    @PositiveOrZero
+    private Long deliveredThroughId;
+
+    @PositiveOrZero
+    private Long readThroughId;
+}
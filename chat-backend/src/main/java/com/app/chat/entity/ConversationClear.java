@@ -0,0 +1,50 @@
+package com.app.chat.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity
+@Table(
+        name = "conversation_clears",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "conversation_key" }))
+public class ConversationClear {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "conversation_key", nullable = false, length = 40)
+    private String conversationKey;
+
+    @Column(nullable = false)
+    private Long clearedThroughMessageId;
+
+    @Column(nullable = false)
+    private Instant clearedAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (clearedAt == null) {
+            clearedAt = Instant.now();
+        }
+    }
+}
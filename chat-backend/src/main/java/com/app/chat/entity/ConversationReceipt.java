@@ -0,0 +1,44 @@
+package com.app.chat.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.Setter;
+
+// Kept apart from the inbox row, which is deleted when the owner clears the conversation while the peer still
+// sees the messages and their ticks.
+@Getter
+@Setter
+@Entity
+@Table(
+        name = "conversation_receipts",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "owner_id", "peer_id" }))
+public class ConversationReceipt {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "peer_id", nullable = false)
+    private User peer;
+
+    // Highest message id the owner has acknowledged as received and as read; peers render ticks from these.
+    @Column(name = "delivered_through_id", nullable = false)
+    private Long deliveredThroughId;
+
+    @Column(name = "read_through_id", nullable = false)
+    private Long readThroughId;
+}
@@ -0,0 +1,72 @@
+package com.app.chat.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity
+@Table(
+        name = "conversation_summaries",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "owner_id", "peer_id" }),
+        indexes = @Index(name = "idx_summary_owner_activity", columnList = "owner_id, last_message_id"))
+public class ConversationSummary {
+
+    public static final int PREVIEW_LENGTH = 200;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "peer_id", nullable = false)
+    private User peer;
+
+    @Column(name = "conversation_key", nullable = false, length = 40)
+    private String conversationKey;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_sender_id", nullable = false)
+    private Long lastSenderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_message_type", nullable = false, length = 20)
+    private Message.MessageType lastMessageType;
+
+    @Column(name = "last_message_preview", length = PREVIEW_LENGTH)
+    private String lastMessagePreview;
+
+    @Column(name = "last_message_at", nullable = false)
+    private Instant lastMessageAt;
+
+    @Column(name = "unread_count", nullable = false)
+    private Integer unreadCount;
+
+    public static String preview(String content) {
+        if (content == null) {
+            return "";
+        }
+        return content.length() <= PREVIEW_LENGTH ? content : content.substring(0, PREVIEW_LENGTH);
+    }
+}
@@ -7,20 +7,28 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_message_conversation", columnList = "conversation_key, id"),
+        @Index(name = "idx_message_sender", columnList = "sender_id, id"),
+        @Index(name = "idx_message_receiver", columnList = "receiver_id, id"),
+        @Index(name = "idx_message_group", columnList = "group_id, id")
+})
 public class Message {
 
+    private static final String GROUP_KEY_PREFIX = "g:";
+
     public enum MessageType {
         TEXT,
         IMAGE,
@@ -29,17 +37,25 @@ public class Message {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
 
-    @ManyToOne(fetch = FetchType.LAZY, optional = false)
-    @JoinColumn(name = "receiver_id", nullable = false)
+    // Direct messages have a receiver; group messages are stored once against the group instead.
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "receiver_id")
     private User receiver;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id")
+    private ChatGroup group;
+
+    @Column(name = "conversation_key", length = 40)
+    private String conversationKey;
+
     @Column(columnDefinition = "TEXT")
     private String content;
 
@@ -61,5 +77,22 @@ public class Message {
         if (sentAt == null) {
             sentAt = Instant.now();
         }
+        if (conversationKey == null) {
+            conversationKey = group != null ? groupConversationKey(group.getId()) : conversationKey(sender, receiver);
+        }
+    }
+
+    public static String conversationKey(User first, User second) {
+        long low = Math.min(first.getId(), second.getId());
+        long high = Math.max(first.getId(), second.getId());
+        return low + ":" + high;
+    }
+
+    public static String groupConversationKey(Long groupId) {
+        return GROUP_KEY_PREFIX + groupId;
+    }
+
+    public static boolean isGroupConversationKey(String conversationKey) {
+        return conversationKey.startsWith(GROUP_KEY_PREFIX);
     }
 }
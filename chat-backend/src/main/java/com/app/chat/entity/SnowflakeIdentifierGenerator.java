@@ -0,0 +1,43 @@
+package com.app.chat.entity;
+
+import java.util.EnumSet;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import com.app.chat.service.SnowflakeIdGenerator;
+
+public class SnowflakeIdentifierGenerator implements BeforeExecutionGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    // Hibernate creates generators through Spring's bean container, so this is the application's single instance
+    // and ids from the write-behind queue and from JPA inserts stay on one sequence.
+    private final transient SnowflakeIdGenerator idGenerator;
+
+    public SnowflakeIdentifierGenerator(SnowflakeIdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public Object generate(
+            SharedSessionContractImplementor session,
+            Object owner,
+            Object currentValue,
+            EventType eventType) {
+        // Keep ids that were assigned up front, e.g. by the message write-behind queue.
+        return currentValue != null ? currentValue : idGenerator.nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+}
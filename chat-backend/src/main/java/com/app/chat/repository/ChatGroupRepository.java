@@ -0,0 +1,8 @@
+package com.app.chat.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.app.chat.entity.ChatGroup;
+
+public interface ChatGroupRepository extends JpaRepository<ChatGroup, Long> {
+}
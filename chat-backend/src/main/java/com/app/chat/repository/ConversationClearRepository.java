@@ -0,0 +1,13 @@
+package com.app.chat.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.app.chat.entity.ConversationClear;
+import com.app.chat.entity.User;
+
+public interface ConversationClearRepository extends JpaRepository<ConversationClear, Long> {
+
+    Optional<ConversationClear> findByUserAndConversationKey(User user, String conversationKey);
+}
@@ -0,0 +1,13 @@
+package com.app.chat.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.app.chat.entity.ConversationReceipt;
+import com.app.chat.entity.User;
+
+public interface ConversationReceiptRepository extends JpaRepository<ConversationReceipt, Long> {
+
+    Optional<ConversationReceipt> findByOwnerAndPeer(User owner, User peer);
+}
@@ -0,0 +1,94 @@
+package com.app.chat.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.app.chat.entity.ConversationSummary;
+import com.app.chat.entity.Message;
+import com.app.chat.entity.User;
+
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+
+    @Query("""
+            SELECT s FROM ConversationSummary s
+            JOIN FETCH s.peer
+            WHERE s.owner = :owner
+              AND s.lastMessageId < :beforeId
+            ORDER BY s.lastMessageId DESC
+            """)
+    List<ConversationSummary> findInboxPage(
+            @Param("owner") User owner,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable);
+
+    Optional<ConversationSummary> findByOwnerAndPeer(User owner, User peer);
+
+    // Both only apply while the row still points at the replaced message, so a send that lands in between wins.
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE ConversationSummary s
+            SET s.lastMessageId = :messageId,
+                s.lastSenderId = :senderId,
+                s.lastMessageType = :type,
+                s.lastMessagePreview = :preview,
+                s.lastMessageAt = :sentAt
+            WHERE s.owner = :owner AND s.conversationKey = :conversationKey AND s.lastMessageId = :replacedId
+            """)
+    int replaceLastMessage(
+            @Param("owner") User owner,
+            @Param("conversationKey") String conversationKey,
+            @Param("replacedId") Long replacedId,
+            @Param("messageId") Long messageId,
+            @Param("senderId") Long senderId,
+            @Param("type") Message.MessageType type,
+            @Param("preview") String preview,
+            @Param("sentAt") Instant sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            DELETE FROM ConversationSummary s
+            WHERE s.owner = :owner AND s.conversationKey = :conversationKey AND s.lastMessageId = :replacedId
+            """)
+    int deleteIfLastMessage(
+            @Param("owner") User owner,
+            @Param("conversationKey") String conversationKey,
+            @Param("replacedId") Long replacedId);
+
+    @Modifying
+    @Query("""
+            DELETE FROM ConversationSummary s
+            WHERE s.owner = :owner AND s.conversationKey = :conversationKey
+            """)
+    int deleteByOwnerAndConversationKey(
+            @Param("owner") User owner,
+            @Param("conversationKey") String conversationKey);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO conversation_summaries (owner_id, peer_id, conversation_key, last_message_id, last_sender_id,
+                last_message_type, last_message_preview, last_message_at, unread_count)
+            SELECT CASE WHEN :asSender THEN m.sender_id ELSE m.receiver_id END,
+                   CASE WHEN :asSender THEN m.receiver_id ELSE m.sender_id END,
+                   m.conversation_key, m.id, m.sender_id, m.type, LEFT(m.content, 200), m.sent_at, 0
+            FROM message m
+            JOIN (SELECT MAX(id) AS last_id FROM message GROUP BY conversation_key) latest ON latest.last_id = m.id
+            WHERE m.group_id IS NULL
+              AND NOT EXISTS (
+                SELECT 1 FROM conversation_clears c
+                WHERE c.user_id = CASE WHEN :asSender THEN m.sender_id ELSE m.receiver_id END
+                  AND c.conversation_key = m.conversation_key
+                  AND c.cleared_through_message_id >= m.id
+              )
+            """, nativeQuery = true)
+    int backfillFromMessages(@Param("asSender") boolean asSender);
+}
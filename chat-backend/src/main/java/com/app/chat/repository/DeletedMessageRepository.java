@@ -1,8 +1,30 @@
 package com.app.chat.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.app.chat.entity.DeletedMessage;
+import com.app.chat.entity.Message;
+import com.app.chat.entity.User;
 
 public interface DeletedMessageRepository extends JpaRepository<DeletedMessage, Long> {
+
+    boolean existsByUserAndMessage(User user, Message message);
+
+    @Modifying
+    @Query("""
+            DELETE FROM DeletedMessage dm
+            WHERE dm.user = :user
+              AND dm.message.id <= :throughId
+              AND dm.message.id IN (
+                SELECT m.id FROM Message m
+                WHERE m.conversationKey = :conversationKey
+              )
+            """)
+    int deleteClearedMarkers(
+            @Param("user") User user,
+            @Param("conversationKey") String conversationKey,
+            @Param("throughId") Long throughId);
 }
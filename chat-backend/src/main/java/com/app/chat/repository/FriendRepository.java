@@ -3,6 +3,8 @@ package com.app.chat.repository;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.app.chat.entity.Friend;
 import com.app.chat.entity.User;
@@ -12,4 +14,12 @@ public interface FriendRepository extends JpaRepository<Friend, Long> {
     boolean existsByUserAndFriend(User user, User friend);
 
     List<Friend> findByUser(User user);
+
+    @Query("""
+            SELECT f FROM Friend f
+            JOIN FETCH f.friend
+            WHERE f.user.userId = :userId
+            ORDER BY f.id ASC
+            """)
+    List<Friend> findWithFriendByUserId(@Param("userId") String userId);
 }
@@ -4,6 +4,8 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.app.chat.entity.FriendRequest;
 import com.app.chat.entity.FriendRequest.Status;
@@ -14,4 +16,14 @@ public interface FriendRequestRepository extends JpaRepository<FriendRequest, Lo
     Optional<FriendRequest> findBySenderAndReceiverAndStatus(User sender, User receiver, Status status);
 
     List<FriendRequest> findByReceiverAndStatus(User receiver, Status status);
+
+    @Query("""
+            SELECT fr FROM FriendRequest fr
+            JOIN FETCH fr.sender
+            WHERE fr.receiver = :receiver AND fr.status = :status
+            ORDER BY fr.createdAt DESC
+            """)
+    List<FriendRequest> findWithSenderByReceiverAndStatus(
+            @Param("receiver") User receiver,
+            @Param("status") Status status);
 }
@@ -0,0 +1,49 @@
+package com.app.chat.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.app.chat.entity.ChatGroup;
+import com.app.chat.entity.GroupMember;
+import com.app.chat.entity.User;
+
+public interface GroupMemberRepository extends JpaRepository<GroupMember, Long> {
+
+    boolean existsByGroupAndUser(ChatGroup group, User user);
+
+    @Query("""
+            SELECT COUNT(gm) > 0 FROM GroupMember gm
+            WHERE gm.group.id = :groupId AND gm.user.username = :username
+            """)
+    boolean isMember(@Param("groupId") Long groupId, @Param("username") String username);
+
+    long countByGroup(ChatGroup group);
+
+    @Query("SELECT gm.group.id FROM GroupMember gm WHERE gm.user = :user")
+    List<Long> findGroupIdsByUser(@Param("user") User user);
+
+    @Query("""
+            SELECT gm FROM GroupMember gm
+            JOIN FETCH gm.group g
+            JOIN FETCH g.owner
+            WHERE gm.user = :user
+            ORDER BY g.id ASC
+            """)
+    List<GroupMember> findWithGroupByUser(@Param("user") User user);
+
+    @Query("""
+            SELECT gm FROM GroupMember gm
+            JOIN FETCH gm.user
+            WHERE gm.group = :group
+            ORDER BY gm.id ASC
+            """)
+    List<GroupMember> findWithUserByGroup(@Param("group") ChatGroup group);
+
+    @Modifying
+    @Query("DELETE FROM GroupMember gm WHERE gm.group = :group AND gm.user = :user")
+    int deleteByGroupAndUser(@Param("group") ChatGroup group, @Param("user") User user);
+}
@@ -1,37 +1,253 @@
 package com.app.chat.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import com.app.chat.entity.Message;
 import com.app.chat.entity.User;
 
+import jakarta.persistence.QueryHint;
+
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
+    // Connector/J streams rows one at a time only when the fetch size is Integer.MIN_VALUE.
+    String MYSQL_STREAMING_FETCH_SIZE = "-2147483648";
+
     List<Message> findBySenderAndReceiverOrSenderAndReceiverOrderBySentAtAsc(
             User sender1, User receiver1, User sender2, User receiver2);
 
     @Query("""
             SELECT m FROM Message m
-            WHERE ((m.sender = :currentUser AND m.receiver = :otherUser)
-                OR (m.sender = :otherUser AND m.receiver = :currentUser))
+            WHERE m.conversationKey = :conversationKey
+              AND m.id < :beforeId
+              AND m.id > :clearedThroughId
+              AND NOT EXISTS (
+                SELECT 1 FROM DeletedMessage dm
+                WHERE dm.user = :currentUser AND dm.message = m
+              )
+            ORDER BY m.id DESC
+            """)
+    List<Message> findConversationPageBefore(
+            @Param("currentUser") User currentUser,
+            @Param("conversationKey") String conversationKey,
+            @Param("beforeId") Long beforeId,
+            @Param("clearedThroughId") Long clearedThroughId,
+            Pageable pageable);
+
+    @Query("""
+            SELECT m FROM Message m
+            WHERE m.conversationKey = :conversationKey
+              AND m.id > :afterId
+              AND m.id > :clearedThroughId
+              AND NOT EXISTS (
+                SELECT 1 FROM DeletedMessage dm
+                WHERE dm.user = :currentUser AND dm.message = m
+              )
+            ORDER BY m.id ASC
+            """)
+    List<Message> findConversationPageAfter(
+            @Param("currentUser") User currentUser,
+            @Param("conversationKey") String conversationKey,
+            @Param("afterId") Long afterId,
+            @Param("clearedThroughId") Long clearedThroughId,
+            Pageable pageable);
+
+    @Query("""
+            SELECT m FROM Message m
+            JOIN FETCH m.sender
+            LEFT JOIN FETCH m.receiver
+            WHERE m.sender = :currentUser
+              AND m.id > :afterId
+              AND m.id <= :throughId
+              AND m.id > COALESCE((
+                SELECT c.clearedThroughMessageId FROM ConversationClear c
+                WHERE c.user = :currentUser AND c.conversationKey = m.conversationKey
+              ), 0)
+              AND NOT EXISTS (
+                SELECT 1 FROM DeletedMessage dm
+                WHERE dm.user = :currentUser AND dm.message = m
+              )
+            ORDER BY m.id ASC
+            """)
+    List<Message> findSentAfter(
+            @Param("currentUser") User currentUser,
+            @Param("afterId") Long afterId,
+            @Param("throughId") Long throughId,
+            Pageable pageable);
+
+    @Query("""
+            SELECT m FROM Message m
+            JOIN FETCH m.sender
+            JOIN FETCH m.receiver
+            WHERE m.receiver = :currentUser
+              AND m.id > :afterId
+              AND m.id <= :throughId
+              AND m.id > COALESCE((
+                SELECT c.clearedThroughMessageId FROM ConversationClear c
+                WHERE c.user = :currentUser AND c.conversationKey = m.conversationKey
+              ), 0)
+              AND NOT EXISTS (
+                SELECT 1 FROM DeletedMessage dm
+                WHERE dm.user = :currentUser AND dm.message = m
+              )
+            ORDER BY m.id ASC
+            """)
+    List<Message> findReceivedAfter(
+            @Param("currentUser") User currentUser,
+            @Param("afterId") Long afterId,
+            @Param("throughId") Long throughId,
+            Pageable pageable);
+
+    @Query("""
+            SELECT m FROM Message m
+            JOIN FETCH m.sender
+            WHERE m.group.id IN (
+                SELECT gm.group.id FROM GroupMember gm WHERE gm.user = :currentUser
+              )
+              AND m.sender <> :currentUser
+              AND m.id > :afterId
+              AND m.id <= :throughId
+              AND m.id > COALESCE((
+                SELECT c.clearedThroughMessageId FROM ConversationClear c
+                WHERE c.user = :currentUser AND c.conversationKey = m.conversationKey
+              ), 0)
+              AND NOT EXISTS (
+                SELECT 1 FROM DeletedMessage dm
+                WHERE dm.user = :currentUser AND dm.message = m
+              )
+            ORDER BY m.id ASC
+            """)
+    List<Message> findGroupReceivedAfter(
+            @Param("currentUser") User currentUser,
+            @Param("afterId") Long afterId,
+            @Param("throughId") Long throughId,
+            Pageable pageable);
+
+    @Query("""
+            SELECT m FROM Message m
+            WHERE m.id > :afterId
+              AND m.id <= :throughId
+            ORDER BY m.id ASC
+            """)
+    List<Message> findIndexBatch(
+            @Param("afterId") Long afterId,
+            @Param("throughId") Long throughId,
+            Pageable pageable);
+
+    @Query("""
+            SELECT m FROM Message m
+            JOIN FETCH m.sender
+            LEFT JOIN FETCH m.receiver
+            WHERE m.id IN :ids
+              AND (m.sender = :currentUser
+                OR m.receiver = :currentUser
+                OR m.group.id IN (SELECT gm.group.id FROM GroupMember gm WHERE gm.user = :currentUser))
+              AND m.id > COALESCE((
+                SELECT c.clearedThroughMessageId FROM ConversationClear c
+                WHERE c.user = :currentUser AND c.conversationKey = m.conversationKey
+              ), 0)
               AND NOT EXISTS (
                 SELECT 1 FROM DeletedMessage dm
                 WHERE dm.user = :currentUser AND dm.message = m
               )
-            ORDER BY m.sentAt ASC
             """)
-    List<Message> findConversationVisibleToUser(@Param("currentUser") User currentUser, @Param("otherUser") User otherUser);
+    List<Message> findVisibleByIds(
+            @Param("currentUser") User currentUser,
+            @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT MAX(m.id) FROM Message m WHERE m.sender = :user")
+    Long findLatestSentId(@Param("user") User user);
+
+    @Query("SELECT MAX(m.id) FROM Message m WHERE m.receiver = :user")
+    Long findLatestReceivedId(@Param("user") User user);
+
+    @Query("""
+            SELECT MAX(m.id) FROM Message m
+            WHERE m.group.id IN (SELECT gm.group.id FROM GroupMember gm WHERE gm.user = :user)
+            """)
+    Long findLatestGroupMessageId(@Param("user") User user);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = MYSQL_STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT m FROM Message m
+            WHERE m.conversationKey = :conversationKey
+              AND m.id > :clearedThroughId
+              AND NOT EXISTS (
+                SELECT 1 FROM DeletedMessage dm
+                WHERE dm.user = :currentUser AND dm.message = m
+              )
+            ORDER BY m.id ASC
+            """)
+    Stream<Message> streamConversation(
+            @Param("currentUser") User currentUser,
+            @Param("conversationKey") String conversationKey,
+            @Param("clearedThroughId") Long clearedThroughId);
+
+    @Query("SELECT MAX(m.id) FROM Message m WHERE m.conversationKey = :conversationKey")
+    Long findLatestMessageId(@Param("conversationKey") String conversationKey);
+
+    @Query("""
+            SELECT COUNT(m) FROM Message m
+            WHERE m.conversationKey = :conversationKey
+              AND m.id > :afterId
+              AND m.id <= :throughId
+              AND NOT EXISTS (
+                SELECT 1 FROM DeletedMessage dm
+                WHERE dm.user = :currentUser AND dm.message = m
+              )
+            """)
+    long countVisibleInRange(
+            @Param("currentUser") User currentUser,
+            @Param("conversationKey") String conversationKey,
+            @Param("afterId") Long afterId,
+            @Param("throughId") Long throughId);
 
     @Modifying
     @Query("""
             DELETE FROM Message m
-            WHERE (m.sender = :currentUser AND m.receiver = :otherUser)
-               OR (m.sender = :otherUser AND m.receiver = :currentUser)
+            WHERE m.conversationKey = :conversationKey
             """)
-    int deleteConversationBetween(@Param("currentUser") User currentUser, @Param("otherUser") User otherUser);
+    int deleteConversation(@Param("conversationKey") String conversationKey);
+
+    @Query("""
+            SELECT m.fileUrl FROM Message m
+            WHERE m.conversationKey = :conversationKey
+              AND m.id <= :throughId
+              AND m.fileUrl IS NOT NULL
+              AND m.fileUrl <> ''
+            """)
+    List<String> findFileUrlsThrough(
+            @Param("conversationKey") String conversationKey,
+            @Param("throughId") long throughId);
+
+    @Modifying
+    @Query("""
+            DELETE FROM Message m
+            WHERE m.conversationKey = :conversationKey
+              AND m.id <= :throughId
+            """)
+    int deleteConversationThrough(
+            @Param("conversationKey") String conversationKey,
+            @Param("throughId") long throughId);
+
+    @Modifying
+    @Query(value = """
+            UPDATE message
+            SET conversation_key = CONCAT(LEAST(sender_id, receiver_id), ':', GREATEST(sender_id, receiver_id))
+            WHERE conversation_key IS NULL
+            LIMIT :batchSize
+            """, nativeQuery = true)
+    int backfillConversationKeys(@Param("batchSize") int batchSize);
 }
@@ -0,0 +1,65 @@
+package com.app.chat.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.app.chat.entity.StoredFile;
+
+import jakarta.persistence.LockModeType;
+
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+
+    Optional<StoredFile> findBySha256(String sha256);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM StoredFile f WHERE f.sha256 = :sha256")
+    Optional<StoredFile> findForUpdate(@Param("sha256") String sha256);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO stored_files (sha256, size_bytes, ref_count, created_at, touched_at)
+            VALUES (:sha256, :sizeBytes, 0, :now, :now)
+            ON DUPLICATE KEY UPDATE touched_at = :now
+            """, nativeQuery = true)
+    int registerUpload(@Param("sha256") String sha256, @Param("sizeBytes") long sizeBytes, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredFile f SET f.touchedAt = :now WHERE f.sha256 = :sha256")
+    int touch(@Param("sha256") String sha256, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE StoredFile f
+            SET f.refCount = f.refCount + 1, f.touchedAt = :now
+            WHERE f.sha256 = :sha256
+            """)
+    int retain(@Param("sha256") String sha256, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE StoredFile f
+            SET f.refCount = f.refCount - 1, f.touchedAt = :now
+            WHERE f.sha256 = :sha256 AND f.refCount > 0
+            """)
+    int release(@Param("sha256") String sha256, @Param("now") Instant now);
+
+    @Query("""
+            SELECT f.sha256 FROM StoredFile f
+            WHERE f.refCount = 0 AND f.touchedAt < :cutoff
+            ORDER BY f.touchedAt
+            """)
+    List<String> findUnreferencedBefore(@Param("cutoff") Instant cutoff, Pageable pageable);
+}
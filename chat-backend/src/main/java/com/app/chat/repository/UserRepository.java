@@ -1,7 +1,9 @@
 package com.app.chat.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.app.chat.entity.User;
@@ -15,4 +17,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
 
     boolean existsByUserId(String userId);
+
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
@@ -25,17 +25,23 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final CustomUserDetailsService userDetailsService;
+    private final UserTypeaheadIndex userTypeaheadIndex;
     private final SecureRandom secureRandom = new SecureRandom();
 
     public AuthService(
             UserRepository userRepository,
             PasswordEncoder passwordEncoder,
             JwtService jwtService,
-            AuthenticationManager authenticationManager) {
+            AuthenticationManager authenticationManager,
+            CustomUserDetailsService userDetailsService,
+            UserTypeaheadIndex userTypeaheadIndex) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
         this.authenticationManager = authenticationManager;
+        this.userDetailsService = userDetailsService;
+        this.userTypeaheadIndex = userTypeaheadIndex;
     }
 
     public Map<String, String> register(RegisterRequest request) {
@@ -50,6 +56,8 @@ public class AuthService {
         user.setUserId(generateUniqueUserId());
 
         User saved = userRepository.save(user);
+        userDetailsService.evict(saved.getUsername());
+        userTypeaheadIndex.add(saved);
         String token = jwtService.generateToken(saved);
 
         Map<String, String> response = new HashMap<>();
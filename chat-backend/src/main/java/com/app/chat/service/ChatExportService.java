@@ -0,0 +1,95 @@
+package com.app.chat.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.app.chat.entity.ConversationClear;
+import com.app.chat.entity.Message;
+import com.app.chat.entity.User;
+import com.app.chat.repository.ConversationClearRepository;
+import com.app.chat.repository.MessageRepository;
+import com.app.chat.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+@Service
+public class ChatExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final MessageRepository messageRepository;
+    private final ConversationClearRepository conversationClearRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public ChatExportService(
+            UserService userService,
+            UserRepository userRepository,
+            MessageRepository messageRepository,
+            ConversationClearRepository conversationClearRepository,
+            TransactionTemplate transactionTemplate,
+            EntityManager entityManager,
+            ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.messageRepository = messageRepository;
+        this.conversationClearRepository = conversationClearRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    public StreamingResponseBody exportConversation(String otherUserId, boolean gzip) {
+        User current = userService.getCurrentUser();
+        User other = userRepository.findByUserId(otherUserId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        String conversationKey = Message.conversationKey(current, other);
+        long clearedThroughId = conversationClearRepository.findByUserAndConversationKey(current, conversationKey)
+                .map(ConversationClear::getClearedThroughMessageId)
+                .orElse(0L);
+
+        return outputStream -> {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+            BufferedOutputStream out = new BufferedOutputStream(target, BUFFER_SIZE);
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Message> messages = messageRepository.streamConversation(
+                        current, conversationKey, clearedThroughId)) {
+                    messages.forEach(message -> {
+                        writeLine(out, message, current, other);
+                        entityManager.detach(message);
+                    });
+                }
+            });
+            out.flush();
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+        };
+    }
+
+    private void writeLine(OutputStream out, Message message, User current, User other) {
+        boolean sentByCurrent = message.getSender().getId().equals(current.getId());
+        try {
+            out.write(objectMapper.writeValueAsBytes(ChatService.toPayload(
+                    message,
+                    sentByCurrent ? current.getUserId() : other.getUserId(),
+                    sentByCurrent ? other.getUserId() : current.getUserId())));
+            out.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
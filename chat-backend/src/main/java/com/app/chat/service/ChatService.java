@@ -1,18 +1,40 @@
 package com.app.chat.service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.MessagingException;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import com.app.chat.dto.ChatMessageDTO;
+import com.app.chat.dto.GroupMessageDTO;
+import com.app.chat.dto.ReceiptDTO;
 import com.app.chat.dto.TypingStatusDTO;
+import com.app.chat.entity.ChatGroup;
+import com.app.chat.entity.ConversationClear;
+import com.app.chat.entity.ConversationSummary;
 import com.app.chat.entity.DeletedMessage;
 import com.app.chat.entity.Message;
 import com.app.chat.entity.User;
+import com.app.chat.repository.ConversationClearRepository;
+import com.app.chat.repository.ConversationReceiptRepository;
+import com.app.chat.repository.ConversationSummaryRepository;
 import com.app.chat.repository.DeletedMessageRepository;
 import com.app.chat.repository.MessageRepository;
 import com.app.chat.repository.UserRepository;
@@ -20,29 +42,71 @@ import com.app.chat.repository.UserRepository;
 @Service
 public class ChatService {
 
+    private static final Logger log = LoggerFactory.getLogger(ChatService.class);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_SYNC_SIZE = 100;
+    private static final int MAX_SYNC_SIZE = 500;
+    private static final int MAX_SEARCH_CANDIDATES = 1000;
+    private static final int SEARCH_VISIBILITY_BATCH = 200;
+
     private final UserService userService;
     private final UserRepository userRepository;
     private final MessageRepository messageRepository;
     private final DeletedMessageRepository deletedMessageRepository;
+    private final ConversationClearRepository conversationClearRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final TypingThrottle typingThrottle;
+    private final FriendCache friendCache;
+    private final FileService fileService;
+    private final MessageWriteBehind messageWriteBehind;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final ConversationReceiptRepository conversationReceiptRepository;
+    private final ReceiptCoalescer receiptCoalescer;
+    private final GroupService groupService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final long syncSettleMs;
 
     public ChatService(
             UserService userService,
             UserRepository userRepository,
             MessageRepository messageRepository,
             DeletedMessageRepository deletedMessageRepository,
-            SimpMessagingTemplate messagingTemplate) {
+            ConversationClearRepository conversationClearRepository,
+            SimpMessagingTemplate messagingTemplate,
+            TypingThrottle typingThrottle,
+            FriendCache friendCache,
+            FileService fileService,
+            MessageWriteBehind messageWriteBehind,
+            ConversationSummaryRepository conversationSummaryRepository,
+            ConversationReceiptRepository conversationReceiptRepository,
+            ReceiptCoalescer receiptCoalescer,
+            GroupService groupService,
+            MessageSearchIndex messageSearchIndex,
+            @Value("${app.chat.sync.settle-ms:2000}") long syncSettleMs) {
         this.userService = userService;
         this.userRepository = userRepository;
         this.messageRepository = messageRepository;
         this.deletedMessageRepository = deletedMessageRepository;
+        this.conversationClearRepository = conversationClearRepository;
         this.messagingTemplate = messagingTemplate;
+        this.typingThrottle = typingThrottle;
+        this.friendCache = friendCache;
+        this.fileService = fileService;
+        this.messageWriteBehind = messageWriteBehind;
+        this.conversationSummaryRepository = conversationSummaryRepository;
+        this.conversationReceiptRepository = conversationReceiptRepository;
+        this.receiptCoalescer = receiptCoalescer;
+        this.groupService = groupService;
+        this.messageSearchIndex = messageSearchIndex;
+        this.syncSettleMs = syncSettleMs;
     }
 
     public Map<String, Object> sendMessage(ChatMessageDTO messageDTO) {
         User sender = userService.getCurrentUser();
         User receiver = userRepository.findByUserId(messageDTO.getReceiverUserId())
                 .orElseThrow(() -> new IllegalArgumentException("Receiver not found"));
+        requireFriends(sender, receiver);
 
         Message message = new Message();
         message.setSender(sender);
@@ -50,67 +114,421 @@ public class ChatService {
         message.setType(messageDTO.getType());
         message.setContent(messageDTO.getContent());
         message.setFileUrl(messageDTO.getFileUrl());
+        fileService.requireStored(messageDTO.getFileUrl());
 
-        Message saved = messageRepository.save(message);
+        // Both participants' inbox rows and the file reference are written in the same transaction as the message.
+        Message saved = messageWriteBehind.write(message);
+        messageSearchIndex.index(saved);
 
         Map<String, Object> payload = toPayload(saved);
-        messagingTemplate.convertAndSendToUser(receiver.getUsername(), "/queue/messages", payload);
-        messagingTemplate.convertAndSendToUser(sender.getUsername(), "/queue/messages", payload);
+        pushToUser(receiver.getUsername(), "/queue/messages", payload);
+        pushToUser(sender.getUsername(), "/queue/messages", payload);
+
+        return payload;
+    }
+
+    public Map<String, Object> sendGroupMessage(GroupMessageDTO messageDTO) {
+        User sender = userService.getCurrentUser();
+        ChatGroup group = groupService.requireMembership(messageDTO.getGroupId(), sender);
+
+        Message message = new Message();
+        message.setSender(sender);
+        message.setGroup(group);
+        message.setType(messageDTO.getType());
+        message.setContent(messageDTO.getContent());
+        message.setFileUrl(messageDTO.getFileUrl());
+        fileService.requireStored(messageDTO.getFileUrl());
 
+        // The message is stored once and published once; the broker fans it out to every subscribed member.
+        // Members who are offline catch up through sync or the group history.
+        Message saved = messageWriteBehind.write(message);
+        messageSearchIndex.index(saved);
+        Map<String, Object> payload = toPayload(saved);
+        try {
+            messagingTemplate.convertAndSend("/topic/group." + group.getId(), payload);
+        } catch (MessagingException ex) {
+            log.warn("Could not publish to group {}: {}", group.getId(), ex.getMessage());
+        }
         return payload;
     }
 
-    public List<Map<String, Object>> getConversation(String otherUserId) {
+    public Map<String, Object> getGroupConversation(Long groupId, Long before, Long after, Integer limit) {
+        User current = userService.getCurrentUser();
+        ChatGroup group = groupService.requireMembership(groupId, current);
+        return conversationPage(current, Message.groupConversationKey(group.getId()), before, after, limit);
+    }
+
+    public Map<String, Object> getConversation(String otherUserId, Long before, Long after, Integer limit) {
         User current = userService.getCurrentUser();
         User other = userRepository.findByUserId(otherUserId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        return messageRepository.findConversationVisibleToUser(current, other)
-                .stream()
+        Map<String, Object> response = conversationPage(
+                current, Message.conversationKey(current, other), before, after, limit);
+        ReceiptCoalescer.Watermarks peerReceipts = peerWatermarks(other, current);
+        response.put("peerDeliveredThroughId", peerReceipts.deliveredThroughId());
+        response.put("peerReadThroughId", peerReceipts.readThroughId());
+        return response;
+    }
+
+    private Map<String, Object> conversationPage(
+            User current, String conversationKey, Long before, Long after, Integer limit) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Use either before or after, not both");
+        }
+        long clearedThroughId = clearedThroughId(current, conversationKey);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PageRequest window = PageRequest.of(0, pageSize + 1);
+
+        List<Message> page;
+        if (after != null) {
+            page = messageRepository.findConversationPageAfter(
+                    current, conversationKey, after, clearedThroughId, window);
+        } else {
+            page = new ArrayList<>(messageRepository.findConversationPageBefore(
+                    current, conversationKey, before == null ? Long.MAX_VALUE : before, clearedThroughId, window));
+        }
+
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page = page.subList(0, pageSize);
+        }
+        if (after == null) {
+            Collections.reverse(page);
+        }
+
+        List<Map<String, Object>> messages = page.stream()
                 .map(this::toPayload)
-                .collect(Collectors.toList());
+                .toList();
+
+        Long oldestId = page.isEmpty() ? null : page.get(0).getId();
+        Long newestId = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("messages", messages);
+        response.put("hasMore", hasMore);
+        response.put("nextCursor", after == null && !hasMore ? null : oldestId);
+        response.put("prevCursor", newestId);
+        return response;
+    }
+
+    public Map<String, Object> getInbox(Long before, Integer limit) {
+        User current = userService.getCurrentUser();
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<ConversationSummary> page = conversationSummaryRepository.findInboxPage(
+                current, before == null ? Long.MAX_VALUE : before, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page = page.subList(0, pageSize);
+        }
+
+        List<Map<String, Object>> conversations = page.stream()
+                .map(summary -> {
+                    User peer = summary.getPeer();
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("peerUserId", peer.getUserId());
+                    item.put("peerUsername", peer.getUsername());
+                    item.put("peerDisplayName", peer.getDisplayName());
+                    item.put("lastMessageId", summary.getLastMessageId());
+                    item.put("lastSenderUserId",
+                            summary.getLastSenderId().equals(current.getId()) ? current.getUserId() : peer.getUserId());
+                    item.put("lastMessageType", summary.getLastMessageType().name());
+                    item.put("lastMessagePreview",
+                            summary.getLastMessagePreview() == null ? "" : summary.getLastMessagePreview());
+                    item.put("lastMessageAt", summary.getLastMessageAt().toString());
+                    item.put("unreadCount", summary.getUnreadCount());
+                    return item;
+                })
+                .toList();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("conversations", conversations);
+        response.put("hasMore", hasMore);
+        response.put("nextCursor", hasMore ? page.get(page.size() - 1).getLastMessageId() : null);
+        return response;
+    }
+
+    public void markConversationRead(String otherUserId, Long messageId) {
+        User current = userService.getCurrentUser();
+        User other = userRepository.findByUserId(otherUserId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        long latestId = latestMessageId(current, other);
+        long readThroughId = messageId != null ? messageId : latestId;
+        receiptCoalescer.acknowledge(current, other, readThroughId, readThroughId, latestId);
+    }
+
+    public void acknowledge(ReceiptDTO receiptDTO) {
+        if (receiptDTO.getDeliveredThroughId() == null && receiptDTO.getReadThroughId() == null) {
+            throw new IllegalArgumentException("Nothing to acknowledge");
+        }
+        User current = userService.getCurrentUser();
+        User peer = userRepository.findByUserId(receiptDTO.getPeerUserId())
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        receiptCoalescer.acknowledge(
+                current,
+                peer,
+                Objects.requireNonNullElse(receiptDTO.getDeliveredThroughId(), 0L),
+                Objects.requireNonNullElse(receiptDTO.getReadThroughId(), 0L),
+                latestMessageId(current, peer));
+    }
+
+    public Map<String, Object> sync(Long cursor, Integer limit) {
+        User current = userService.getCurrentUser();
+        long settledThroughId = messageWriteBehind.settledThroughId(syncSettleMs);
+        Map<String, Object> response = new HashMap<>();
+        if (cursor == null) {
+            // No cursor yet: hand out the current head so the client only receives what arrives from now on.
+            long sentHead = Objects.requireNonNullElse(messageRepository.findLatestSentId(current), 0L);
+            long receivedHead = Objects.requireNonNullElse(messageRepository.findLatestReceivedId(current), 0L);
+            long groupHead = Objects.requireNonNullElse(messageRepository.findLatestGroupMessageId(current), 0L);
+            response.put("messages", List.of());
+            response.put("hasMore", false);
+            long head = Math.max(sentHead, Math.max(receivedHead, groupHead));
+            response.put("nextCursor", Math.min(head, settledThroughId));
+            return response;
+        }
+
+        int pageSize = limit == null ? DEFAULT_SYNC_SIZE : Math.max(1, Math.min(limit, MAX_SYNC_SIZE));
+        PageRequest window = PageRequest.of(0, pageSize + 1);
+        // Each source is already an id-ordered window of pageSize + 1, so the first pageSize + 1 of their
+        // union is exactly the next page.
+        List<Message> page = new ArrayList<>(3 * (pageSize + 1));
+        page.addAll(messageRepository.findSentAfter(current, cursor, settledThroughId, window));
+        page.addAll(messageRepository.findReceivedAfter(current, cursor, settledThroughId, window));
+        page.addAll(messageRepository.findGroupReceivedAfter(current, cursor, settledThroughId, window));
+        page.sort(Comparator.comparing(Message::getId));
+        if (page.size() > pageSize + 1) {
+            page = page.subList(0, pageSize + 1);
+        }
+
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page = page.subList(0, pageSize);
+        }
+
+        response.put("messages", page.stream().map(this::toPayload).toList());
+        response.put("hasMore", hasMore);
+        response.put("nextCursor", page.isEmpty() ? cursor : page.get(page.size() - 1).getId());
+        return response;
+    }
+
+    public Map<String, Object> search(String query, Integer offset, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is empty");
+        }
+        User current = userService.getCurrentUser();
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int start = offset == null ? 0 : Math.max(0, offset);
+
+        Set<String> conversationKeys = new HashSet<>(groupService.conversationKeys(current));
+        conversationKeys.addAll(messageSearchIndex.directConversationKeys(current.getId()));
+        List<MessageSearchIndex.Hit> hits = messageSearchIndex.search(query, conversationKeys, MAX_SEARCH_CANDIDATES);
+
+        // The index only knows conversations; clears and per-user deletes are applied against the database,
+        // in rank order, until the requested page is filled.
+        List<Map<String, Object>> visible = new ArrayList<>();
+        for (int from = 0; from < hits.size() && visible.size() <= start + pageSize; from += SEARCH_VISIBILITY_BATCH) {
+            List<MessageSearchIndex.Hit> batch =
+                    hits.subList(from, Math.min(from + SEARCH_VISIBILITY_BATCH, hits.size()));
+            Map<Long, Message> found = messageRepository.findVisibleByIds(
+                            current, batch.stream().map(MessageSearchIndex.Hit::messageId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(Message::getId, Function.identity()));
+            for (MessageSearchIndex.Hit hit : batch) {
+                Message message = found.get(hit.messageId());
+                if (message != null) {
+                    Map<String, Object> result = new HashMap<>(toPayload(message));
+                    result.put("score", hit.score());
+                    visible.add(result);
+                }
+            }
+        }
+
+        boolean hasMore = visible.size() > start + pageSize;
+        Map<String, Object> response = new HashMap<>();
+        int end = Math.min(start + pageSize, visible.size());
+        response.put("results", visible.subList(Math.min(start, end), end));
+        response.put("hasMore", hasMore);
+        response.put("nextOffset", hasMore ? start + pageSize : null);
+        return response;
     }
 
     public void sendTypingStatus(TypingStatusDTO typingStatusDTO) {
         User sender = userService.getCurrentUser();
         User receiver = userRepository.findByUserId(typingStatusDTO.getReceiverUserId())
                 .orElseThrow(() -> new IllegalArgumentException("Receiver not found"));
+        requireFriends(sender, receiver);
+        if (!typingThrottle.shouldForward(sender.getId(), receiver.getId(), typingStatusDTO.isTyping())) {
+            return;
+        }
 
         Map<String, Object> payload = Map.of(
                 "senderUserId", sender.getUserId(),
                 "receiverUserId", receiver.getUserId(),
                 "typing", typingStatusDTO.isTyping());
 
-        messagingTemplate.convertAndSend("/topic/typing", payload);
+        pushToUser(receiver.getUsername(), "/queue/typing", payload);
     }
 
     @Transactional
-    public int deleteConversation(String otherUserId) {
+    public long deleteConversation(String otherUserId) {
         User current = userService.getCurrentUser();
         User other = userRepository.findByUserId(otherUserId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        List<Message> conversation = messageRepository
-                .findConversationVisibleToUser(current, other);
-        if (conversation.isEmpty()) {
+        String conversationKey = Message.conversationKey(current, other);
+
+        Long latestId = messageRepository.findLatestMessageId(conversationKey);
+        if (latestId == null) {
             return 0;
         }
-        List<DeletedMessage> markers = conversation.stream()
-                .map(message -> {
-                    DeletedMessage dm = new DeletedMessage();
-                    dm.setUser(current);
-                    dm.setMessage(message);
-                    return dm;
-                })
-                .toList();
-        deletedMessageRepository.saveAll(markers);
-        return markers.size();
+
+        ConversationClear clear = conversationClearRepository
+                .findByUserAndConversationKey(current, conversationKey)
+                .orElseGet(() -> {
+                    ConversationClear created = new ConversationClear();
+                    created.setUser(current);
+                    created.setConversationKey(conversationKey);
+                    created.setClearedThroughMessageId(0L);
+                    return created;
+                });
+        long previousId = clear.getClearedThroughMessageId();
+        if (latestId <= previousId) {
+            return 0;
+        }
+
+        long cleared = messageRepository.countVisibleInRange(current, conversationKey, previousId, latestId);
+        clear.setClearedThroughMessageId(latestId);
+        clear.setClearedAt(Instant.now());
+        conversationClearRepository.save(clear);
+        deletedMessageRepository.deleteClearedMarkers(current, conversationKey, latestId);
+        conversationSummaryRepository.deleteByOwnerAndConversationKey(current, conversationKey);
+        purgeClearedByBoth(other, conversationKey, latestId);
+        return cleared;
+    }
+
+    @Transactional
+    public void deleteMessage(Long messageId) {
+        User current = userService.getCurrentUser();
+        Message message = messageRepository.findById(messageId)
+                .orElseThrow(() -> new IllegalArgumentException("Message not found"));
+
+        boolean participant = message.getGroup() != null
+                ? groupService.isMember(message.getGroup(), current)
+                : message.getSender().getId().equals(current.getId())
+                        || message.getReceiver().getId().equals(current.getId());
+        if (!participant) {
+            throw new IllegalArgumentException("Message not found");
+        }
+        if (message.getId() <= clearedThroughId(current, message.getConversationKey())
+                || deletedMessageRepository.existsByUserAndMessage(current, message)) {
+            return;
+        }
+
+        DeletedMessage marker = new DeletedMessage();
+        marker.setUser(current);
+        marker.setMessage(message);
+        deletedMessageRepository.save(marker);
+        if (message.getGroup() == null) {
+            refreshSummaryAfterDelete(current, message);
+        }
+    }
+
+    private void refreshSummaryAfterDelete(User current, Message deleted) {
+        // Deleting is one-sided, so only the current user's inbox row can point at a message they no longer see.
+        User peer = deleted.getSender().getId().equals(current.getId()) ? deleted.getReceiver() : deleted.getSender();
+        boolean wasLast = conversationSummaryRepository.findByOwnerAndPeer(current, peer)
+                .map(summary -> summary.getLastMessageId().equals(deleted.getId()))
+                .orElse(false);
+        if (!wasLast) {
+            return;
+        }
+        String conversationKey = deleted.getConversationKey();
+        long clearedThroughId = clearedThroughId(current, conversationKey);
+        List<Message> latest = messageRepository.findConversationPageBefore(
+                current, conversationKey, Long.MAX_VALUE, clearedThroughId, PageRequest.of(0, 1));
+        if (latest.isEmpty()) {
+            conversationSummaryRepository.deleteIfLastMessage(current, conversationKey, deleted.getId());
+            return;
+        }
+        Message replacement = latest.get(0);
+        conversationSummaryRepository.replaceLastMessage(
+                current,
+                conversationKey,
+                deleted.getId(),
+                replacement.getId(),
+                replacement.getSender().getId(),
+                replacement.getType(),
+                ConversationSummary.preview(replacement.getContent()),
+                replacement.getSentAt());
+    }
+
+    private void purgeClearedByBoth(User other, String conversationKey, long clearedThroughId) {
+        // Messages both participants have cleared are unreachable, so drop them and their file references. Only
+        // content-addressed storage needs this to reclaim files; named storage keeps message history as it was.
+        if (!fileService.isContentAddressed()) {
+            return;
+        }
+        long purgeThroughId = Math.min(clearedThroughId, clearedThroughId(other, conversationKey));
+        if (purgeThroughId <= 0) {
+            return;
+        }
+        List<String> fileUrls = messageRepository.findFileUrlsThrough(conversationKey, purgeThroughId);
+        messageRepository.deleteConversationThrough(conversationKey, purgeThroughId);
+        fileService.release(fileUrls);
+    }
+
+    private void requireFriends(User sender, User receiver) {
+        if (!friendCache.areFriends(sender.getUserId(), receiver.getUserId())) {
+            throw new IllegalArgumentException("You can only message your friends");
+        }
+    }
+
+    private void pushToUser(String username, String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSendToUser(username, destination, payload);
+        } catch (MessagingException ex) {
+            // The message is already stored; clients pick it up on their next fetch.
+            log.warn("Could not push {} to {}: {}", destination, username, ex.getMessage());
+        }
+    }
+
+    private ReceiptCoalescer.Watermarks peerWatermarks(User peer, User current) {
+        // Acks still waiting for the next flush are newer than the stored row.
+        ReceiptCoalescer.Watermarks pending = receiptCoalescer.pendingWatermarks(peer, current);
+        return conversationReceiptRepository.findByOwnerAndPeer(peer, current)
+                .map(receipt -> new ReceiptCoalescer.Watermarks(
+                        Math.max(receipt.getDeliveredThroughId(), pending.deliveredThroughId()),
+                        Math.max(receipt.getReadThroughId(), pending.readThroughId())))
+                .orElse(pending);
+    }
+
+    private long latestMessageId(User current, User other) {
+        String conversationKey = Message.conversationKey(current, other);
+        long stored = Objects.requireNonNullElse(messageRepository.findLatestMessageId(conversationKey), 0L);
+        return Math.max(stored, messageWriteBehind.latestUnflushedId(conversationKey));
+    }
+
+    private long clearedThroughId(User user, String conversationKey) {
+        return conversationClearRepository.findByUserAndConversationKey(user, conversationKey)
+                .map(ConversationClear::getClearedThroughMessageId)
+                .orElse(0L);
     }
 
     private Map<String, Object> toPayload(Message message) {
+        if (message.getGroup() != null) {
+            Map<String, Object> payload = new HashMap<>(toPayload(message, message.getSender().getUserId(), ""));
+            payload.put("groupId", message.getGroup().getId());
+            return payload;
+        }
+        return toPayload(message, message.getSender().getUserId(), message.getReceiver().getUserId());
+    }
+
+    static Map<String, Object> toPayload(Message message, String senderUserId, String receiverUserId) {
         return Map.of(
                 "id", message.getId(),
-                "senderUserId", message.getSender().getUserId(),
-                "receiverUserId", message.getReceiver().getUserId(),
+                "senderUserId", senderUserId,
+                "receiverUserId", receiverUserId,
                 "content", message.getContent() == null ? "" : message.getContent(),
                 "fileUrl", message.getFileUrl() == null ? "" : message.getFileUrl(),
                 "type", message.getType().name(),
@@ -1,24 +1,80 @@
 package com.app.chat.service;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import com.app.chat.entity.User;
 import com.app.chat.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    // Callers get the principal as a User entity and hand it on to services, so the cache keeps immutable copies
+    // of the columns and builds a fresh User for every lookup rather than sharing one instance between threads.
+    private record PrincipalSnapshot(
+            Long id, String userId, String username, String password, String displayName, boolean enabled) {
+
+        private static PrincipalSnapshot of(User user) {
+            return new PrincipalSnapshot(
+                    user.getId(),
+                    user.getUserId(),
+                    user.getUsername(),
+                    user.getPassword(),
+                    user.getDisplayName(),
+                    user.isEnabled());
+        }
+
+        private User toUser() {
+            User user = new User();
+            user.setId(id);
+            user.setUserId(userId);
+            user.setUsername(username);
+            user.setPassword(password);
+            user.setDisplayName(displayName);
+            user.setEnabled(enabled);
+            return user;
+        }
+    }
+
     private final UserRepository userRepository;
+    private final Cache<String, PrincipalSnapshot> principalCache;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.auth.principal-cache.max-size:10000}") long maxSize,
+            @Value("${app.auth.principal-cache.ttl-ms:300000}") long ttlMs) {
         this.userRepository = userRepository;
+        this.principalCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principalCache, "principal");
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        PrincipalSnapshot snapshot = principalCache.get(username, key -> userRepository.findByUsername(key)
+                .map(PrincipalSnapshot::of)
+                .orElse(null));
+        if (snapshot == null) {
+            throw new UsernameNotFoundException("User not found: " + username);
+        }
+        return snapshot.toUser();
+    }
+
+    public void evict(String username) {
+        principalCache.invalidate(username);
     }
 }
@@ -1,25 +1,91 @@
 package com.app.chat.service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.app.chat.entity.StoredFile;
+import com.app.chat.repository.StoredFileRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Service
 public class FileService {
 
+    private static final Logger log = LoggerFactory.getLogger(FileService.class);
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int SWEEP_BATCH_SIZE = 500;
+    private static final String FILE_URL_PREFIX = "/api/files/";
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,10})?");
+
     private final Path uploadDir;
+    private final Path partialDir;
+    private final Path casDir;
+    private final boolean contentAddressed;
+    private final long maxUploadBytes;
+    private final Duration orphanGrace;
+    private final StoredFileRepository storedFileRepository;
+    private final ThumbnailService thumbnailService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
 
-    public FileService(@Value("${app.upload.dir:uploads}") String uploadDir) {
+    public FileService(
+            @Value("${app.upload.dir:uploads}") String uploadDir,
+            @Value("${app.upload.max-size:50MB}") DataSize maxUploadSize,
+            @Value("${app.upload.storage:named}") String storageMode,
+            @Value("${app.upload.cas.orphan-grace:24h}") Duration orphanGrace,
+            StoredFileRepository storedFileRepository,
+            ThumbnailService thumbnailService,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry) {
         this.uploadDir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.partialDir = this.uploadDir.resolve(".partial");
+        this.casDir = this.uploadDir.resolve("cas");
+        this.contentAddressed = "cas".equalsIgnoreCase(storageMode);
+        this.maxUploadBytes = maxUploadSize.toBytes();
+        this.orphanGrace = orphanGrace;
+        this.storedFileRepository = storedFileRepository;
+        this.thumbnailService = thumbnailService;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
     }
 
     public Map<String, String> upload(MultipartFile file) {
@@ -27,24 +93,353 @@ public class FileService {
             throw new IllegalArgumentException("File is empty");
         }
 
+        if (contentAddressed) {
+            try (InputStream body = file.getInputStream()) {
+                StoredUpload stored = store(body, cleanFileName(file.getOriginalFilename()));
+                return Map.of(
+                        "fileName", stored.fileName(),
+                        "fileUrl", FILE_URL_PREFIX + stored.fileName());
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to store file", ex);
+            }
+        }
+
         try {
             Files.createDirectories(uploadDir);
             String fileName = Instant.now().toEpochMilli() + "-" + UUID.randomUUID() + "-" + file.getOriginalFilename();
             Path target = uploadDir.resolve(fileName).normalize();
-            Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
+            // transferTo(File) goes through Part.write, which renames the container's spooled part into place when
+            // it is on disk; the Path overload always copies the stream.
+            file.transferTo(target.toFile());
+            thumbnailService.schedule(target, fileName);
             return Map.of(
                     "fileName", fileName,
-                    "fileUrl", "/api/files/" + fileName);
+                    "fileUrl", FILE_URL_PREFIX + fileName);
         } catch (IOException ex) {
             throw new IllegalStateException("Failed to store file", ex);
         }
     }
 
+    public Map<String, Object> uploadStream(InputStream body, String originalName, long declaredLength) {
+        String cleanName = checkUpload(originalName, declaredLength);
+
+        long started = System.nanoTime();
+        StoredUpload stored = store(body, cleanName);
+        long elapsedNanos = System.nanoTime() - started;
+
+        meterRegistry.timer("files.upload", "mode", "stream").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.summary("files.upload.bytes", "mode", "stream").record(stored.size());
+        if (elapsedNanos > 0) {
+            meterRegistry.summary("files.upload.throughput", "mode", "stream")
+                    .record(stored.size() * 1_000_000_000.0 / elapsedNanos);
+        }
+        return toResponse(stored);
+    }
+
+    public String checkUpload(String originalName, long declaredLength) {
+        String cleanName = cleanFileName(originalName);
+        if (declaredLength > maxUploadBytes) {
+            meterRegistry.counter("files.upload.rejected", "reason", "declared_size").increment();
+            throw new MaxUploadSizeExceededException(maxUploadBytes);
+        }
+        return cleanName;
+    }
+
+    public Path createPartialFile() {
+        try {
+            Files.createDirectories(partialDir);
+            return Files.createFile(partialDir.resolve(UUID.randomUUID() + ".part"));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to create upload file", ex);
+        }
+    }
+
+    public Map<String, Object> commitPartial(Path partial, String originalName) {
+        String cleanName = cleanFileName(originalName);
+        try {
+            HashedContent content = hashFile(partial);
+            StoredUpload stored = commit(partial, content, cleanName);
+            meterRegistry.summary("files.upload.bytes", "mode", "chunked").record(stored.size());
+            return toResponse(stored);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to store file", ex);
+        } finally {
+            deleteQuietly(partial);
+        }
+    }
+
+    public void deletePartial(Path partial) {
+        deleteQuietly(partial);
+    }
+
+    public void deleteStalePartials(Instant cutoff, Collection<Path> active) {
+        if (!Files.isDirectory(partialDir)) {
+            return;
+        }
+        try (Stream<Path> partials = Files.list(partialDir)) {
+            partials.filter(partial -> !active.contains(partial))
+                    .filter(partial -> isOlderThan(partial, cutoff))
+                    .forEach(FileService::deleteQuietly);
+        } catch (IOException ex) {
+            log.warn("Could not clean up partial uploads: {}", ex.getMessage());
+        }
+    }
+
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
+
+    public void requireStored(String fileUrl) {
+        // Touching the row also keeps the sweep off it for the orphan grace period, which covers the time until
+        // the message insert takes its reference.
+        String hash = contentHash(fileUrl);
+        if (hash != null && storedFileRepository.touch(hash, Instant.now()) == 0) {
+            throw new IllegalArgumentException("File not found");
+        }
+    }
+
+    public void retain(Collection<String> fileUrls) {
+        // Runs inside the message insert's transaction, so a send that is never stored holds no reference.
+        Instant now = Instant.now();
+        for (String fileUrl : fileUrls) {
+            String hash = contentHash(fileUrl);
+            if (hash != null && storedFileRepository.retain(hash, now) == 0) {
+                throw new IllegalStateException("Stored file " + hash + " is gone");
+            }
+        }
+    }
+
+    public void release(Collection<String> fileUrls) {
+        Instant now = Instant.now();
+        for (String fileUrl : fileUrls) {
+            String hash = contentHash(fileUrl);
+            if (hash != null) {
+                storedFileRepository.release(hash, now);
+            }
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.upload.cas.sweep-interval-ms:3600000}",
+            fixedDelayString = "${app.upload.cas.sweep-interval-ms:3600000}")
+    public void sweepUnreferenced() {
+        Instant cutoff = Instant.now().minus(orphanGrace);
+        List<String> candidates = storedFileRepository.findUnreferencedBefore(cutoff, PageRequest.of(0, SWEEP_BATCH_SIZE));
+        int removed = 0;
+        for (String hash : candidates) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> deleteIfUnreferenced(hash, cutoff)))) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            meterRegistry.counter("files.cas.swept").increment(removed);
+            log.info("Removed {} unreferenced content-addressed files", removed);
+        }
+    }
+
+    public MediaType contentType(String fileName, Path path) {
+        Optional<MediaType> byName = MediaTypeFactory.getMediaType(fileName);
+        if (byName.isPresent()) {
+            return byName.get();
+        }
+        try {
+            String probed = Files.probeContentType(path);
+            return probed == null ? MediaType.APPLICATION_OCTET_STREAM : MediaType.parseMediaType(probed);
+        } catch (IOException | InvalidMediaTypeException ex) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    public String etag(Path path, long size, long lastModifiedMillis) {
+        if (path.startsWith(casDir)) {
+            return "\"" + path.getFileName() + "\"";
+        }
+        // Uploaded files are never rewritten in place, so size and mtime identify the bytes.
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedMillis) + "\"";
+    }
+
     public Path resolveFile(String fileName) {
+        Matcher contentAddressedName = CONTENT_ADDRESSED_NAME.matcher(fileName);
+        if (contentAddressedName.matches()) {
+            return contentPath(contentAddressedName.group(1));
+        }
         Path resolved = uploadDir.resolve(fileName).normalize();
         if (!resolved.startsWith(uploadDir)) {
             throw new IllegalArgumentException("Invalid file path");
         }
         return resolved;
     }
+
+    private StoredUpload store(InputStream body, String cleanName) {
+        Path partial = partialDir.resolve(UUID.randomUUID() + ".part");
+        try {
+            Files.createDirectories(partialDir);
+            HashedContent content = writeHashed(body, partial);
+            return commit(partial, content, cleanName);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to store file", ex);
+        } finally {
+            deleteQuietly(partial);
+        }
+    }
+
+    private HashedContent writeHashed(InputStream body, Path partial) throws IOException {
+        MessageDigest digest = sha256();
+        long written = 0;
+        try (ReadableByteChannel in = Channels.newChannel(body);
+                FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE);
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                written += buffer.remaining();
+                if (written > maxUploadBytes) {
+                    meterRegistry.counter("files.upload.rejected", "reason", "size").increment();
+                    throw new MaxUploadSizeExceededException(maxUploadBytes);
+                }
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        if (written == 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        return new HashedContent(written, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static HashedContent hashFile(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE);
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                size += buffer.remaining();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return new HashedContent(size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private StoredUpload commit(Path partial, HashedContent content, String cleanName) throws IOException {
+        return contentAddressed
+                ? commitContentAddressed(partial, content, cleanName)
+                : commitNamed(partial, content, cleanName);
+    }
+
+    private StoredUpload commitNamed(Path partial, HashedContent content, String cleanName) throws IOException {
+        String fileName = Instant.now().toEpochMilli() + "-" + UUID.randomUUID() + "-" + cleanName;
+        Path target = resolveFile(fileName);
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        thumbnailService.schedule(target, fileName);
+        return new StoredUpload(fileName, content.size(), content.sha256());
+    }
+
+    private StoredUpload commitContentAddressed(Path partial, HashedContent content, String cleanName)
+            throws IOException {
+        String hash = content.sha256();
+        storedFileRepository.registerUpload(hash, content.size(), Instant.now());
+        Path target = contentPath(hash);
+        if (Files.isRegularFile(target)) {
+            meterRegistry.counter("files.upload.deduplicated", "mode", "upload").increment();
+        } else {
+            Files.createDirectories(target.getParent());
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        String fileName = hash + extensionOf(cleanName);
+        thumbnailService.schedule(target, fileName);
+        return new StoredUpload(fileName, content.size(), hash);
+    }
+
+    private boolean deleteIfUnreferenced(String hash, Instant cutoff) {
+        // registerUpload's upsert waits on this row lock, so an upload of the same bytes either lands before the
+        // re-check below (and keeps the file) or after the row is gone (and writes the file back).
+        Optional<StoredFile> stored = storedFileRepository.findForUpdate(hash);
+        if (stored.isEmpty() || stored.get().getRefCount() > 0 || !stored.get().getTouchedAt().isBefore(cutoff)) {
+            return false;
+        }
+        deleteContent(contentPath(hash));
+        thumbnailService.deleteVariants(contentPath(hash));
+        storedFileRepository.delete(stored.get());
+        return true;
+    }
+
+    private static Map<String, Object> toResponse(StoredUpload stored) {
+        return Map.of(
+                "fileName", stored.fileName(),
+                "fileUrl", FILE_URL_PREFIX + stored.fileName(),
+                "size", stored.size(),
+                "sha256", stored.sha256());
+    }
+
+    private static boolean isOlderThan(Path path, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private Path contentPath(String hash) {
+        return casDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static String contentHash(String fileUrl) {
+        if (fileUrl == null || !fileUrl.startsWith(FILE_URL_PREFIX)) {
+            return null;
+        }
+        Matcher matcher = CONTENT_ADDRESSED_NAME.matcher(fileUrl.substring(FILE_URL_PREFIX.length()));
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    private static String cleanFileName(String originalName) {
+        String cleanName = StringUtils.getFilename(StringUtils.cleanPath(originalName == null ? "" : originalName));
+        if (!StringUtils.hasText(cleanName) || cleanName.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid file name");
+        }
+        return cleanName;
+    }
+
+    private static String extensionOf(String fileName) {
+        String extension = StringUtils.getFilenameExtension(fileName);
+        if (extension == null) {
+            return "";
+        }
+        extension = extension.toLowerCase(Locale.ROOT);
+        return extension.matches("[a-z0-9]{1,10}") ? "." + extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Only used for .partial files, which are never served; deleteStalePartials retries them later.
+        }
+    }
+
+    private static void deleteContent(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            // The row is removed either way, so nothing retries this; it has to be cleaned up by hand.
+            log.warn("Could not delete unreferenced file {}: {}", path, ex.getMessage());
+        }
+    }
+
+    private record HashedContent(long size, String sha256) {
+    }
+
+    private record StoredUpload(String fileName, long size, String sha256) {
+    }
 }
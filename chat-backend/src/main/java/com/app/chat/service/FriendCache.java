@@ -0,0 +1,66 @@
+package com.app.chat.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.app.chat.repository.FriendRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+@Component
+public class FriendCache {
+
+    public record FriendSummary(Long id, String userId, String username, String displayName) {
+    }
+
+    private final LoadingCache<String, List<FriendSummary>> friendsByUserId;
+
+    public FriendCache(
+            FriendRepository friendRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.friends.cache.max-size:10000}") long maxSize,
+            @Value("${app.friends.cache.ttl-ms:600000}") long ttlMs) {
+        this.friendsByUserId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build(userId -> friendRepository.findWithFriendByUserId(userId)
+                        .stream()
+                        .map(f -> new FriendSummary(
+                                f.getFriend().getId(),
+                                f.getFriend().getUserId(),
+                                f.getFriend().getUsername(),
+                                f.getFriend().getDisplayName()))
+                        .toList());
+        CaffeineCacheMetrics.monitor(meterRegistry, friendsByUserId, "friends");
+    }
+
+    public List<FriendSummary> getFriends(String userId) {
+        return friendsByUserId.get(userId);
+    }
+
+    public boolean areFriends(String userId, String otherUserId) {
+        return getFriends(userId).stream().anyMatch(f -> f.userId().equals(otherUserId));
+    }
+
+    public void invalidateAfterCommit(String... userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            friendsByUserId.invalidateAll(List.of(userIds));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                friendsByUserId.invalidateAll(List.of(userIds));
+            }
+        });
+    }
+}
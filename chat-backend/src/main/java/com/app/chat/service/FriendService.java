@@ -23,16 +23,19 @@ public class FriendService {
     private final UserRepository userRepository;
     private final FriendRequestRepository friendRequestRepository;
     private final FriendRepository friendRepository;
+    private final FriendCache friendCache;
 
     public FriendService(
             UserService userService,
             UserRepository userRepository,
             FriendRequestRepository friendRequestRepository,
-            FriendRepository friendRepository) {
+            FriendRepository friendRepository,
+            FriendCache friendCache) {
         this.userService = userService;
         this.userRepository = userRepository;
         this.friendRequestRepository = friendRequestRepository;
         this.friendRepository = friendRepository;
+        this.friendCache = friendCache;
     }
 
     @Transactional
@@ -80,6 +83,7 @@ public class FriendService {
 
         createFriendLink(request.getSender(), request.getReceiver());
         createFriendLink(request.getReceiver(), request.getSender());
+        friendCache.invalidateAfterCommit(request.getSender().getUserId(), request.getReceiver().getUserId());
 
         return Map.of(
                 "requestId", request.getId(),
@@ -88,7 +92,7 @@ public class FriendService {
 
     public List<Map<String, Object>> getPendingRequests() {
         User current = userService.getCurrentUser();
-        return friendRequestRepository.findByReceiverAndStatus(current, Status.PENDING)
+        return friendRequestRepository.findWithSenderByReceiverAndStatus(current, Status.PENDING)
                 .stream()
                 .map(fr -> Map.of(
                         "requestId", (Object) fr.getId(),
@@ -100,12 +104,12 @@ public class FriendService {
 
     public List<Map<String, String>> getFriends() {
         User current = userService.getCurrentUser();
-        return friendRepository.findByUser(current)
+        return friendCache.getFriends(current.getUserId())
                 .stream()
                 .map(f -> Map.of(
-                        "userId", f.getFriend().getUserId(),
-                        "username", f.getFriend().getUsername(),
-                        "displayName", f.getFriend().getDisplayName()))
+                        "userId", f.userId(),
+                        "username", f.username(),
+                        "displayName", f.displayName()))
                 .collect(Collectors.toList());
     }
 
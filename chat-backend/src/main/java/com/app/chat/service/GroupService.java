@@ -0,0 +1,189 @@
+package com.app.chat.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.app.chat.dto.CreateGroupDTO;
+import com.app.chat.entity.ChatGroup;
+import com.app.chat.entity.GroupMember;
+import com.app.chat.entity.Message;
+import com.app.chat.entity.User;
+import com.app.chat.repository.ChatGroupRepository;
+import com.app.chat.repository.GroupMemberRepository;
+import com.app.chat.repository.UserRepository;
+
+@Service
+public class GroupService {
+
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final ChatGroupRepository chatGroupRepository;
+    private final GroupMemberRepository groupMemberRepository;
+    private final FriendCache friendCache;
+    private final GroupTopicSubscriptions groupTopicSubscriptions;
+    private final int maxMembers;
+
+    public GroupService(
+            UserService userService,
+            UserRepository userRepository,
+            ChatGroupRepository chatGroupRepository,
+            GroupMemberRepository groupMemberRepository,
+            FriendCache friendCache,
+            GroupTopicSubscriptions groupTopicSubscriptions,
+            @Value("${app.groups.max-members:2000}") int maxMembers) {
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.chatGroupRepository = chatGroupRepository;
+        this.groupMemberRepository = groupMemberRepository;
+        this.friendCache = friendCache;
+        this.groupTopicSubscriptions = groupTopicSubscriptions;
+        this.maxMembers = maxMembers;
+    }
+
+    @Transactional
+    public Map<String, Object> createGroup(CreateGroupDTO groupDTO) {
+        User owner = userService.getCurrentUser();
+        Set<String> memberUserIds = new LinkedHashSet<>(groupDTO.getMemberUserIds());
+        memberUserIds.remove(owner.getUserId());
+        if (memberUserIds.size() + 1 > maxMembers) {
+            throw new IllegalArgumentException("A group can have at most " + maxMembers + " members");
+        }
+
+        ChatGroup group = new ChatGroup();
+        group.setName(groupDTO.getName().trim());
+        group.setOwner(owner);
+        ChatGroup saved = chatGroupRepository.save(group);
+
+        addMembership(saved, owner);
+        for (String userId : memberUserIds) {
+            addMembership(saved, requireFriend(owner, userId));
+        }
+        return toPayload(saved, owner, memberUserIds.size() + 1);
+    }
+
+    public List<Map<String, Object>> getGroups() {
+        User current = userService.getCurrentUser();
+        return groupMemberRepository.findWithGroupByUser(current).stream()
+                .map(member -> {
+                    ChatGroup group = member.getGroup();
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("groupId", group.getId());
+                    item.put("name", group.getName());
+                    item.put("ownerUserId", group.getOwner().getUserId());
+                    item.put("joinedAt", member.getJoinedAt().toString());
+                    return item;
+                })
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getGroup(Long groupId) {
+        User current = userService.getCurrentUser();
+        ChatGroup group = requireMembership(groupId, current);
+        List<Map<String, String>> members = groupMemberRepository.findWithUserByGroup(group).stream()
+                .map(member -> Map.of(
+                        "userId", member.getUser().getUserId(),
+                        "username", member.getUser().getUsername(),
+                        "displayName", member.getUser().getDisplayName()))
+                .toList();
+
+        Map<String, Object> response = toPayload(group, group.getOwner(), members.size());
+        response.put("members", members);
+        return response;
+    }
+
+    @Transactional
+    public Map<String, Object> addMember(Long groupId, String userId) {
+        User current = userService.getCurrentUser();
+        ChatGroup group = requireMembership(groupId, current);
+        requireOwner(group, current);
+        User user = requireFriend(current, userId);
+        if (groupMemberRepository.existsByGroupAndUser(group, user)) {
+            throw new IllegalArgumentException("User is already a member");
+        }
+        long memberCount = groupMemberRepository.countByGroup(group);
+        if (memberCount >= maxMembers) {
+            throw new IllegalArgumentException("A group can have at most " + maxMembers + " members");
+        }
+        addMembership(group, user);
+        return toPayload(group, current, memberCount + 1);
+    }
+
+    @Transactional
+    public void removeMember(Long groupId, String userId) {
+        User current = userService.getCurrentUser();
+        ChatGroup group = requireMembership(groupId, current);
+        User user = userRepository.findByUserId(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        boolean leaving = user.getId().equals(current.getId());
+        if (!leaving) {
+            requireOwner(group, current);
+        } else if (group.getOwner().getId().equals(current.getId())) {
+            throw new IllegalArgumentException("The owner cannot leave the group");
+        }
+        if (groupMemberRepository.deleteByGroupAndUser(group, user) == 0) {
+            throw new IllegalArgumentException("User is not a member");
+        }
+        groupTopicSubscriptions.revokeAfterCommit(group.getId(), user.getUsername());
+    }
+
+    ChatGroup requireMembership(Long groupId, User user) {
+        // Non-members get the same answer as for a missing group so ids cannot be probed.
+        ChatGroup group = chatGroupRepository.findById(groupId)
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        if (!isMember(group, user)) {
+            throw new IllegalArgumentException("Group not found");
+        }
+        return group;
+    }
+
+    Set<String> conversationKeys(User user) {
+        return groupMemberRepository.findGroupIdsByUser(user).stream()
+                .map(Message::groupConversationKey)
+                .collect(Collectors.toSet());
+    }
+
+    boolean isMember(ChatGroup group, User user) {
+        return groupMemberRepository.existsByGroupAndUser(group, user);
+    }
+
+    private void addMembership(ChatGroup group, User user) {
+        GroupMember member = new GroupMember();
+        member.setGroup(group);
+        member.setUser(user);
+        groupMemberRepository.save(member);
+    }
+
+    private User requireFriend(User current, String userId) {
+        User user = userRepository.findByUserId(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        if (!friendCache.areFriends(current.getUserId(), user.getUserId())) {
+            throw new IllegalArgumentException("You can only add your friends to a group");
+        }
+        return user;
+    }
+
+    private static void requireOwner(ChatGroup group, User user) {
+        if (!group.getOwner().getId().equals(user.getId())) {
+            throw new IllegalArgumentException("Only the group owner can change members");
+        }
+    }
+
+    private static Map<String, Object> toPayload(ChatGroup group, User owner, long memberCount) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("groupId", group.getId());
+        payload.put("name", group.getName());
+        payload.put("ownerUserId", owner.getUserId());
+        payload.put("memberCount", memberCount);
+        payload.put("createdAt", group.getCreatedAt().toString());
+        return payload;
+    }
+}
@@ -0,0 +1,70 @@
+package com.app.chat.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.app.chat.config.GroupTopicDeliveryInterceptor;
+
+@Component
+public class GroupTopicSubscriptions {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupTopicSubscriptions.class);
+
+    private final SimpUserRegistry userRegistry;
+    private final MessageChannel clientInboundChannel;
+    private final GroupTopicDeliveryInterceptor groupTopicDeliveryInterceptor;
+
+    public GroupTopicSubscriptions(
+            SimpUserRegistry userRegistry,
+            @Qualifier("clientInboundChannel") MessageChannel clientInboundChannel,
+            GroupTopicDeliveryInterceptor groupTopicDeliveryInterceptor) {
+        this.userRegistry = userRegistry;
+        this.clientInboundChannel = clientInboundChannel;
+        this.groupTopicDeliveryInterceptor = groupTopicDeliveryInterceptor;
+    }
+
+    public void revokeAfterCommit(Long groupId, String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            revoke(groupId, username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                revoke(groupId, username);
+            }
+        });
+    }
+
+    private void revoke(Long groupId, String username) {
+        // Membership is only checked on SUBSCRIBE, so a removed member's open sessions keep the topic until the
+        // broker is told to drop them. Only sessions connected to this node can be unsubscribed from here: in relay
+        // mode the registry also lists other nodes' sessions, the relay has no connection for those and ignores the
+        // frame, and they are cut off by each node's GroupTopicDeliveryInterceptor instead.
+        groupTopicDeliveryInterceptor.forget(groupId, username);
+        String destination = "/topic/group." + groupId;
+        for (SimpSubscription subscription : userRegistry.findSubscriptions(candidate ->
+                destination.equals(candidate.getDestination())
+                        && username.equals(candidate.getSession().getUser().getName()))) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.UNSUBSCRIBE);
+            accessor.setSessionId(subscription.getSession().getId());
+            accessor.setSubscriptionId(subscription.getId());
+            try {
+                clientInboundChannel.send(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+            } catch (MessagingException ex) {
+                log.warn("Could not unsubscribe {} from {}: {}", username, destination, ex.getMessage());
+            }
+        }
+    }
+}
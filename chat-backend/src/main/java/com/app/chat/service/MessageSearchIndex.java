@@ -0,0 +1,379 @@
+package com.app.chat.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.app.chat.entity.Message;
+import com.app.chat.repository.MessageRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+@Component
+public class MessageSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchIndex.class);
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int MAX_TOKEN_LENGTH = 40;
+    private static final int MAX_QUERY_TERMS = 10;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final byte DOCUMENT_RECORD = 'M';
+    private static final byte CHECKPOINT_RECORD = 'C';
+    private static final int CATCH_UP_BATCH_SIZE = 500;
+    // Bounds one catch-up run so a first backfill does not hold the shared scheduler thread for long.
+    private static final int MAX_CATCH_UP_BATCHES = 20;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Postings are kept per conversation so a search only walks the conversations the caller can see.
+    private final Map<String, Map<String, Postings>> postings = new HashMap<>();
+    private final Map<String, Integer> documentFrequencies = new HashMap<>();
+    private final Map<Long, Set<String>> directConversations = new HashMap<>();
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private final Path logFile;
+    private final MessageRepository messageRepository;
+    private final MessageWriteBehind messageWriteBehind;
+    private final long settleMs;
+    private DataOutputStream logOut;
+    private long totalLength;
+    private volatile long checkpointId;
+
+    public MessageSearchIndex(
+            @Value("${app.search.index-dir:search-index}") String indexDir,
+            @Value("${app.chat.sync.settle-ms:2000}") long settleMs,
+            MessageRepository messageRepository,
+            MessageWriteBehind messageWriteBehind,
+            MeterRegistry meterRegistry) {
+        this.logFile = Paths.get(indexDir).toAbsolutePath().normalize().resolve("messages.log");
+        this.settleMs = settleMs;
+        this.messageRepository = messageRepository;
+        this.messageWriteBehind = messageWriteBehind;
+        try {
+            Files.createDirectories(logFile.getParent());
+            replay();
+            logOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    logFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not open search index " + logFile, ex);
+        }
+        Gauge.builder("chat.search.documents", this, index -> index.documentCount()).register(meterRegistry);
+        Gauge.builder("chat.search.terms", this, index -> index.termCount()).register(meterRegistry);
+    }
+
+    public void index(Message message) {
+        Map<String, Integer> terms = termFrequencies(message.getContent());
+        if (terms.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (documentLengths.containsKey(message.getId())) {
+                return;
+            }
+            apply(message.getId(), message.getConversationKey(), terms);
+            append(encodeDocument(message.getId(), message.getConversationKey(), terms));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Set<String> directConversationKeys(long userId) {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(directConversations.getOrDefault(userId, Set.of()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Hit> search(String query, Collection<String> conversationKeys, int maxHits) {
+        List<String> terms = termFrequencies(query).keySet().stream().limit(MAX_QUERY_TERMS).toList();
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = documentLengths.size();
+            double averageLength = documentCount == 0 ? 1 : (double) totalLength / documentCount;
+            // IDF stays corpus-wide so scores do not depend on which conversations were searched.
+            Map<String, Double> idfs = new HashMap<>();
+            for (String term : terms) {
+                int frequency = documentFrequencies.getOrDefault(term, 0);
+                if (frequency > 0) {
+                    idfs.put(term, Math.log(1 + (documentCount - frequency + 0.5) / (frequency + 0.5)));
+                }
+            }
+            if (idfs.isEmpty()) {
+                return List.of();
+            }
+            for (String conversationKey : conversationKeys) {
+                Map<String, Postings> conversation = postings.get(conversationKey);
+                if (conversation == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Double> idf : idfs.entrySet()) {
+                    Postings list = conversation.get(idf.getKey());
+                    if (list == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < list.size; i++) {
+                        int tf = list.frequencies[i];
+                        double norm = K1 * (1 - B + B * documentLengths.get(list.ids[i]) / averageLength);
+                        scores.merge(list.ids[i], idf.getValue() * tf * (K1 + 1) / (tf + norm), Double::sum);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.entrySet().stream()
+                .map(entry -> new Hit(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(Hit::score).reversed()
+                        .thenComparing(Comparator.comparingLong(Hit::messageId).reversed()))
+                .limit(maxHits)
+                .toList();
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.search.catch-up-interval-ms:5000}",
+            fixedDelayString = "${app.search.catch-up-interval-ms:5000}")
+    public void catchUp() {
+        // Sends on this node are indexed as they happen; this picks up other nodes' messages, anything written
+        // while the index was down, and the whole history the first time the index is built.
+        long settledThroughId = messageWriteBehind.settledThroughId(settleMs);
+        long afterId = checkpointId;
+        int scanned = 0;
+        for (int batches = 0; batches < MAX_CATCH_UP_BATCHES && afterId < settledThroughId; batches++) {
+            List<Message> batch = messageRepository.findIndexBatch(
+                    afterId, settledThroughId, PageRequest.of(0, CATCH_UP_BATCH_SIZE));
+            batch.forEach(this::index);
+            scanned += batch.size();
+            afterId = batch.size() < CATCH_UP_BATCH_SIZE ? settledThroughId : batch.get(batch.size() - 1).getId();
+        }
+        if (scanned == 0) {
+            // Nothing new; an older persisted checkpoint only means an empty range is scanned again on restart.
+            checkpointId = Math.max(checkpointId, afterId);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            checkpointId = afterId;
+            append(encodeCheckpoint(afterId));
+            if (logOut != null) {
+                logOut.flush();
+            }
+        } catch (IOException ex) {
+            log.warn("Could not flush search index {}: {}", logFile, ex.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (logOut != null) {
+                logOut.close();
+                logOut = null;
+            }
+        } catch (IOException ex) {
+            log.warn("Could not close search index {}: {}", logFile, ex.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> terms = new LinkedHashMap<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty() && token.length() <= MAX_TOKEN_LENGTH) {
+                terms.merge(token, 1, Integer::sum);
+            }
+        }
+        return terms;
+    }
+
+    private void apply(long messageId, String conversationKey, Map<String, Integer> terms) {
+        Map<String, Postings> conversation = postings.get(conversationKey);
+        if (conversation == null) {
+            conversation = new HashMap<>();
+            postings.put(conversationKey, conversation);
+            if (!Message.isGroupConversationKey(conversationKey)) {
+                for (String participant : conversationKey.split(":")) {
+                    directConversations.computeIfAbsent(Long.valueOf(participant), key -> new HashSet<>())
+                            .add(conversationKey);
+                }
+            }
+        }
+        int length = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            conversation.computeIfAbsent(term.getKey(), key -> new Postings()).add(messageId, term.getValue());
+            documentFrequencies.merge(term.getKey(), 1, Integer::sum);
+            length += term.getValue();
+        }
+        documentLengths.put(messageId, length);
+        totalLength += length;
+    }
+
+    private void append(byte[] record) {
+        if (logOut == null) {
+            return;
+        }
+        try {
+            logOut.writeInt(record.length);
+            logOut.write(record);
+        } catch (IOException ex) {
+            // The in-memory index is still current; the next restart re-reads the gap from the database.
+            log.warn("Could not append to search index {}: {}", logFile, ex.getMessage());
+        }
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            while (true) {
+                byte[] record;
+                try {
+                    record = new byte[in.readInt()];
+                    in.readFully(record);
+                } catch (EOFException ex) {
+                    break;
+                }
+                decode(record);
+                validBytes += Integer.BYTES + record.length;
+            }
+        }
+        if (validBytes < Files.size(logFile)) {
+            // A crash mid-append leaves a partial record; drop it so new records start on a boundary.
+            log.warn("Truncating partial record at the end of search index {}", logFile);
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+            }
+        }
+        log.info("Loaded {} indexed messages from {}", documentLengths.size(), logFile);
+    }
+
+    private void decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        if (type == CHECKPOINT_RECORD) {
+            checkpointId = in.readLong();
+            return;
+        }
+        long messageId = in.readLong();
+        String conversationKey = in.readUTF();
+        int termCount = in.readInt();
+        Map<String, Integer> terms = new HashMap<>(termCount * 2);
+        for (int i = 0; i < termCount; i++) {
+            terms.put(in.readUTF(), in.readInt());
+        }
+        if (!documentLengths.containsKey(messageId)) {
+            apply(messageId, conversationKey, terms);
+        }
+    }
+
+    private static byte[] encodeDocument(long messageId, String conversationKey, Map<String, Integer> terms) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(DOCUMENT_RECORD);
+            out.writeLong(messageId);
+            out.writeUTF(conversationKey);
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                out.writeUTF(term.getKey());
+                out.writeInt(term.getValue());
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeCheckpoint(long throughId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(CHECKPOINT_RECORD);
+            out.writeLong(throughId);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int documentCount() {
+        lock.readLock().lock();
+        try {
+            return documentLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int termCount() {
+        lock.readLock().lock();
+        try {
+            return documentFrequencies.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public record Hit(long messageId, double score) {
+    }
+
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void add(long messageId, int frequency) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ids[size] = messageId;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+}
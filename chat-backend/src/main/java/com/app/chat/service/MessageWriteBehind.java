@@ -0,0 +1,325 @@
+package com.app.chat.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.app.chat.entity.ConversationSummary;
+import com.app.chat.entity.Message;
+import com.app.chat.repository.MessageRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+@Component
+public class MessageWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageWriteBehind.class);
+    private static final String INSERT_PREFIX =
+            "INSERT INTO message (id, sender_id, receiver_id, group_id, conversation_key, content, file_url, type, sent_at) VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // One statement upserts both participants' inbox rows. MySQL applies the assignments left to right, so
+    // last_message_id is compared before it is moved forward and out-of-order sends never rewind a row.
+    private static final String SUMMARY_SQL = """
+            INSERT INTO conversation_summaries (owner_id, peer_id, conversation_key, last_message_id, last_sender_id,
+                last_message_type, last_message_preview, last_message_at, unread_count)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0),
+                   (?, ?, ?, ?, ?, ?, ?, ?, 1)
+            ON DUPLICATE KEY UPDATE
+                unread_count = unread_count + VALUES(unread_count),
+                last_sender_id = CASE WHEN VALUES(last_message_id) > last_message_id
+                    THEN VALUES(last_sender_id) ELSE last_sender_id END,
+                last_message_type = CASE WHEN VALUES(last_message_id) > last_message_id
+                    THEN VALUES(last_message_type) ELSE last_message_type END,
+                last_message_preview = CASE WHEN VALUES(last_message_id) > last_message_id
+                    THEN VALUES(last_message_preview) ELSE last_message_preview END,
+                last_message_at = CASE WHEN VALUES(last_message_id) > last_message_id
+                    THEN VALUES(last_message_at) ELSE last_message_at END,
+                last_message_id = GREATEST(last_message_id, VALUES(last_message_id))
+            """;
+    private static final int COLUMNS = 9;
+    private static final long POLL_TIMEOUT_MS = 100;
+    private static final long MAX_RETRY_BACKOFF_MS = 5_000;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final BlockingQueue<Message> queue;
+    // Ids handed out but not yet committed, including batches that are being retried.
+    private final ConcurrentSkipListSet<Long> unflushedIds = new ConcurrentSkipListSet<>();
+    private final Map<String, Long> latestUnflushedIds = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageRepository messageRepository;
+    private final FileService fileService;
+    private final SnowflakeIdGenerator idGenerator;
+    private final MeterRegistry meterRegistry;
+    private final Thread flusher;
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+
+    public MessageWriteBehind(
+            @Value("${app.chat.write-behind.enabled:false}") boolean enabled,
+            @Value("${app.chat.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.chat.write-behind.batch-size:500}") int batchSize,
+            @Value("${app.chat.write-behind.offer-timeout-ms:50}") long offerTimeoutMs,
+            @Value("${app.chat.write-behind.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MessageRepository messageRepository,
+            FileService fileService,
+            SnowflakeIdGenerator idGenerator,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messageRepository = messageRepository;
+        this.fileService = fileService;
+        this.idGenerator = idGenerator;
+        this.meterRegistry = meterRegistry;
+        this.flusher = new Thread(this::drainLoop, "message-write-behind");
+        this.flusher.setDaemon(true);
+        meterRegistry.gaugeCollectionSize("chat.writebehind.queue", List.of(), queue);
+        if (enabled) {
+            running = true;
+            flusher.start();
+        }
+    }
+
+    public Message write(Message message) {
+        // Offers hold the read lock so shutdown cannot stop the flusher between the running check and the offer,
+        // which would strand the message in a queue nobody drains.
+        boolean accepted = false;
+        stateLock.readLock().lock();
+        try {
+            if (running) {
+                message.setId(idGenerator.nextId());
+                message.prePersist();
+                unflushedIds.add(message.getId());
+                latestUnflushedIds.merge(message.getConversationKey(), message.getId(), Math::max);
+                accepted = true;
+                if (offer(message)) {
+                    return message;
+                }
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (!accepted) {
+            return transactionTemplate.execute(status -> {
+                Message saved = messageRepository.save(message);
+                recordSummaries(List.of(saved));
+                retainFiles(List.of(saved));
+                return saved;
+            });
+        }
+        // Backpressure: a full queue makes the sender pay for its own insert instead of dropping the message.
+        meterRegistry.counter("chat.writebehind.overflow").increment();
+        try {
+            insert(List.of(message));
+        } finally {
+            flushed(message);
+        }
+        return message;
+    }
+
+    public long settledThroughId(long settleMs) {
+        // Ids are handed out before their inserts commit, so a newer id can become visible before an older one.
+        // Readers stop below anything this node still has queued or retrying, and hold back the last few seconds
+        // for inserts in flight elsewhere (plain JPA saves, other nodes).
+        long settled = SnowflakeIdGenerator.firstIdAt(System.currentTimeMillis() - settleMs) - 1;
+        return Math.min(settled, lowestUnflushedId() - 1);
+    }
+
+    public long lowestUnflushedId() {
+        // Everything below this id that this node will ever write is already in the database.
+        Long lowest = unflushedIds.ceiling(0L);
+        return lowest == null ? Long.MAX_VALUE : lowest;
+    }
+
+    public long latestUnflushedId(String conversationKey) {
+        // Receipts may ack a message the sender was already told about but that is not in the database yet.
+        return latestUnflushedIds.getOrDefault(conversationKey, 0L);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        flusher.join(shutdownTimeoutMs);
+        if (flusher.isAlive() || !queue.isEmpty()) {
+            // Queued messages and a batch still being retried are lost with the process.
+            int stranded = unflushedIds.size();
+            meterRegistry.counter("chat.writebehind.dropped").increment(stranded);
+            log.error("Shut down with {} messages still waiting to be written", stranded);
+        }
+    }
+
+    private void drainLoop() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Message first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException ex) {
+                // Only shutdown stops the loop, and it does so by clearing the running flag.
+                Thread.interrupted();
+            } finally {
+                batch.forEach(this::flushed);
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean offer(Message message) {
+        try {
+            return queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void flushed(Message message) {
+        unflushedIds.remove(message.getId());
+        latestUnflushedIds.remove(message.getConversationKey(), message.getId());
+    }
+
+    private void flush(List<Message> batch) {
+        long started = System.nanoTime();
+        try {
+            insertRetrying(batch);
+            meterRegistry.timer("chat.writebehind.flush").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            meterRegistry.summary("chat.writebehind.batch.size").record(batch.size());
+        } catch (RuntimeException ex) {
+            // A permanent failure in a multi-row insert fails every row; isolate the bad ones.
+            for (Message message : batch) {
+                try {
+                    insertRetrying(List.of(message));
+                } catch (RuntimeException rowEx) {
+                    meterRegistry.counter("chat.writebehind.dropped").increment();
+                    log.error("Dropping message {} that could not be written: {}", message.getId(), rowEx.getMessage());
+                }
+            }
+        }
+    }
+
+    private void insertRetrying(List<Message> messages) {
+        // Senders were already told these messages were accepted, so transient failures are retried until they
+        // succeed; only permanent ones escape.
+        long backoffMs = 100;
+        while (true) {
+            try {
+                insert(messages);
+                return;
+            } catch (TransientDataAccessException | RecoverableDataAccessException
+                    | DataAccessResourceFailureException | TransactionException ex) {
+                log.warn("Writing {} messages failed, retrying in {} ms: {}",
+                        messages.size(), backoffMs, ex.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException interrupted) {
+                    // Nothing interrupts the flusher on purpose; giving up here would lose the batch.
+                }
+                backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void insert(List<Message> messages) {
+        // Inbox rows and file references commit with the messages, so neither outlives a message that was not stored.
+        transactionTemplate.executeWithoutResult(status -> {
+            insertRows(messages);
+            recordSummaries(messages);
+            retainFiles(messages);
+        });
+    }
+
+    private void insertRows(List<Message> messages) {
+        String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(messages.size(), INSERT_ROW));
+        Object[] args = new Object[messages.size() * COLUMNS];
+        int i = 0;
+        for (Message message : messages) {
+            args[i++] = message.getId();
+            args[i++] = message.getSender().getId();
+            args[i++] = message.getReceiver() == null ? null : message.getReceiver().getId();
+            args[i++] = message.getGroup() == null ? null : message.getGroup().getId();
+            args[i++] = message.getConversationKey();
+            args[i++] = message.getContent();
+            args[i++] = message.getFileUrl();
+            args[i++] = message.getType().name();
+            args[i++] = Timestamp.from(message.getSentAt());
+        }
+        jdbcTemplate.update(sql, args);
+    }
+
+    private void retainFiles(List<Message> messages) {
+        List<String> fileUrls = messages.stream()
+                .map(Message::getFileUrl)
+                .filter(Objects::nonNull)
+                .toList();
+        if (!fileUrls.isEmpty()) {
+            fileService.retain(fileUrls);
+        }
+    }
+
+    private void recordSummaries(List<Message> messages) {
+        List<Object[]> args = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (message.getReceiver() == null) {
+                // Group messages have no per-peer inbox row.
+                continue;
+            }
+            Long senderId = message.getSender().getId();
+            Long receiverId = message.getReceiver().getId();
+            String key = message.getConversationKey();
+            String type = message.getType().name();
+            String preview = ConversationSummary.preview(message.getContent());
+            Timestamp sentAt = Timestamp.from(message.getSentAt());
+            args.add(new Object[] {
+                    senderId, receiverId, key, message.getId(), senderId, type, preview, sentAt,
+                    receiverId, senderId, key, message.getId(), senderId, type, preview, sentAt });
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(SUMMARY_SQL, args);
+        }
+    }
+}
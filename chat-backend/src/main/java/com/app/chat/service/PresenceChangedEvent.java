@@ -0,0 +1,6 @@
+package com.app.chat.service;
+
+import java.time.Instant;
+
+public record PresenceChangedEvent(String userId, boolean online, Instant lastSeenAt) {
+}
@@ -0,0 +1,76 @@
+package com.app.chat.service;
+
+import java.security.Principal;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.app.chat.entity.User;
+
+@Component
+public class PresenceEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PresenceEventListener.class);
+
+    private final PresenceService presenceService;
+    private final FriendCache friendCache;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public PresenceEventListener(
+            PresenceService presenceService,
+            FriendCache friendCache,
+            SimpMessagingTemplate messagingTemplate) {
+        this.presenceService = presenceService;
+        this.friendCache = friendCache;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @EventListener
+    public void onSessionConnected(SessionConnectedEvent event) {
+        User user = toUser(event.getUser());
+        if (user != null) {
+            String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+            presenceService.sessionConnected(user.getUserId(), sessionId);
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        User user = toUser(event.getUser());
+        if (user != null) {
+            presenceService.sessionDisconnected(user.getUserId(), event.getSessionId());
+        }
+    }
+
+    @EventListener
+    public void onPresenceChanged(PresenceChangedEvent event) {
+        Map<String, Object> payload = Map.of(
+                "userId", event.userId(),
+                "online", event.online(),
+                "lastSeenAt", event.lastSeenAt().toString());
+        for (FriendCache.FriendSummary friend : friendCache.getFriends(event.userId())) {
+            try {
+                messagingTemplate.convertAndSendToUser(friend.username(), "/queue/presence", payload);
+            } catch (MessagingException ex) {
+                log.warn("Could not push presence to {}: {}", friend.username(), ex.getMessage());
+            }
+        }
+    }
+
+    private User toUser(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+        return null;
+    }
+}
@@ -1,31 +1,204 @@
 package com.app.chat.service;
 
-import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.app.chat.entity.User;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Service
 public class PresenceService {
 
-    private static final Duration ONLINE_WINDOW = Duration.ofSeconds(25);
-    private final Map<String, Instant> lastSeenByUserId = new ConcurrentHashMap<>();
+    private static final long ONLINE_WINDOW_MS = 25_000;
+    private static final long WHEEL_TICK_MS = 1_000;
+    private static final int WHEEL_SIZE = 512;
+    private static final long NOT_SCHEDULED = Long.MIN_VALUE;
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger onlineUsers = new AtomicInteger();
+    private final PresenceTimingWheel wheel;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FriendCache friendCache;
+    private final long lastSeenRetentionMs;
+    private final Counter expiredCounter;
+
+    public PresenceService(
+            ApplicationEventPublisher eventPublisher,
+            FriendCache friendCache,
+            MeterRegistry meterRegistry,
+            @Value("${app.presence.last-seen-retention-ms:86400000}") long lastSeenRetentionMs) {
+        this.eventPublisher = eventPublisher;
+        this.friendCache = friendCache;
+        this.lastSeenRetentionMs = lastSeenRetentionMs;
+        this.wheel = new PresenceTimingWheel(WHEEL_TICK_MS, WHEEL_SIZE, System.currentTimeMillis());
+        Gauge.builder("presence.online.users", onlineUsers, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("presence.entries", entries, Map::size).register(meterRegistry);
+        this.expiredCounter = meterRegistry.counter("presence.expired");
+    }
 
     public void heartbeat(String userId) {
-        lastSeenByUserId.put(userId, Instant.now());
+        touch(userId, null);
     }
 
-    public boolean isOnline(String userId) {
-        Instant lastSeen = lastSeenByUserId.get(userId);
-        if (lastSeen == null) {
-            return false;
+    public void sessionConnected(String userId, String sessionId) {
+        touch(userId, sessionId);
+    }
+
+    public void sessionDisconnected(String userId, String sessionId) {
+        long now = System.currentTimeMillis();
+        boolean[] wentOffline = new boolean[1];
+        entries.computeIfPresent(userId, (key, entry) -> {
+            if (!entry.sessions.remove(sessionId)) {
+                return entry;
+            }
+            entry.lastSeenMillis = now;
+            if (entry.online && !isOnline(entry, now)) {
+                entry.online = false;
+                wentOffline[0] = true;
+            }
+            schedule(key, entry, now);
+            return entry;
+        });
+        if (wentOffline[0]) {
+            onlineUsers.decrementAndGet();
+            eventPublisher.publishEvent(new PresenceChangedEvent(userId, false, Instant.ofEpochMilli(now)));
         }
-        return Duration.between(lastSeen, Instant.now()).compareTo(ONLINE_WINDOW) <= 0;
+    }
+
+    public boolean isOnline(String userId) {
+        Entry entry = entries.get(userId);
+        return entry != null && isOnline(entry, System.currentTimeMillis());
     }
 
     public Instant getLastSeen(String userId) {
-        return lastSeenByUserId.get(userId);
+        Entry entry = entries.get(userId);
+        return entry == null ? null : Instant.ofEpochMilli(entry.lastSeenMillis);
+    }
+
+    public Map<String, Object> getStatus(String userId) {
+        Entry entry = entries.get(userId);
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", userId);
+        payload.put("online", entry != null && isOnline(entry, System.currentTimeMillis()));
+        payload.put("lastSeenAt", entry == null ? null : Instant.ofEpochMilli(entry.lastSeenMillis).toString());
+        return payload;
+    }
+
+    public List<Map<String, Object>> getStatuses(Collection<String> userIds) {
+        if (userIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " users per status request");
+        }
+        return userIds.stream()
+                .distinct()
+                .map(this::getStatus)
+                .toList();
+    }
+
+    public List<Map<String, Object>> getFriendStatuses(User user) {
+        return friendCache.getFriends(user.getUserId())
+                .stream()
+                .map(friend -> getStatus(friend.userId()))
+                .toList();
+    }
+
+    public int getOnlineCount() {
+        return onlineUsers.get();
+    }
+
+    @Scheduled(fixedDelay = WHEEL_TICK_MS)
+    public void expireIdle() {
+        long now = System.currentTimeMillis();
+        wheel.advance(now, (userId, tick) -> expireIfIdle(userId, tick, now));
+    }
+
+    private void touch(String userId, String sessionId) {
+        long now = System.currentTimeMillis();
+        boolean[] cameOnline = new boolean[1];
+        entries.compute(userId, (key, existing) -> {
+            Entry entry = existing == null ? new Entry() : existing;
+            entry.lastSeenMillis = now;
+            if (sessionId == null) {
+                entry.lastHeartbeatMillis = now;
+            } else {
+                entry.sessions.add(sessionId);
+            }
+            if (!entry.online) {
+                entry.online = true;
+                cameOnline[0] = true;
+            }
+            schedule(key, entry, now);
+            return entry;
+        });
+        if (cameOnline[0]) {
+            onlineUsers.incrementAndGet();
+            eventPublisher.publishEvent(new PresenceChangedEvent(userId, true, Instant.ofEpochMilli(now)));
+        }
+    }
+
+    private void expireIfIdle(String userId, long tick, long now) {
+        boolean[] wentOffline = new boolean[1];
+        long[] lastSeen = new long[1];
+        entries.computeIfPresent(userId, (key, entry) -> {
+            if (entry.scheduledTick == NOT_SCHEDULED || !wheel.sameSlot(entry.scheduledTick, tick)) {
+                return entry;
+            }
+            if (entry.scheduledTick > tick) {
+                wheel.scheduleAt(key, entry.scheduledTick);
+                return entry;
+            }
+            if (entry.online && !isOnline(entry, now)) {
+                entry.online = false;
+                wentOffline[0] = true;
+                lastSeen[0] = entry.lastSeenMillis;
+            }
+            if (!entry.online && now - entry.lastSeenMillis >= lastSeenRetentionMs) {
+                expiredCounter.increment();
+                return null;
+            }
+            schedule(key, entry, now);
+            return entry;
+        });
+        if (wentOffline[0]) {
+            onlineUsers.decrementAndGet();
+            eventPublisher.publishEvent(new PresenceChangedEvent(userId, false, Instant.ofEpochMilli(lastSeen[0])));
+        }
+    }
+
+    private void schedule(String userId, Entry entry, long now) {
+        if (!entry.sessions.isEmpty()) {
+            entry.scheduledTick = NOT_SCHEDULED;
+            return;
+        }
+        long deadline = entry.online
+                ? entry.lastHeartbeatMillis + ONLINE_WINDOW_MS
+                : entry.lastSeenMillis + lastSeenRetentionMs;
+        entry.scheduledTick = wheel.schedule(userId, Math.max(deadline, now));
+    }
+
+    private static boolean isOnline(Entry entry, long now) {
+        return !entry.sessions.isEmpty() || now - entry.lastHeartbeatMillis <= ONLINE_WINDOW_MS;
+    }
+
+    private static final class Entry {
+        private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+        private volatile long lastSeenMillis;
+        private volatile long lastHeartbeatMillis;
+        private volatile long scheduledTick = NOT_SCHEDULED;
+        private boolean online;
     }
 }
@@ -0,0 +1,66 @@
+package com.app.chat.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hashed timing wheel of user ids. A slot may hold ids due in a later
+ * rotation or ids that were rescheduled since; the callback decides.
+ */
+final class PresenceTimingWheel {
+
+    interface TickHandler {
+        void onTick(String key, long tick);
+    }
+
+    private final long tickMs;
+    private final List<Set<String>> slots;
+    private volatile long currentTick;
+
+    PresenceTimingWheel(long tickMs, int wheelSize, long startMillis) {
+        this.tickMs = tickMs;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(ConcurrentHashMap.newKeySet());
+        }
+        this.currentTick = startMillis / tickMs;
+    }
+
+    long schedule(String key, long deadlineMillis) {
+        long tick = Math.max(ceilDiv(deadlineMillis, tickMs), currentTick + 1);
+        slotFor(tick).add(key);
+        return tick;
+    }
+
+    void scheduleAt(String key, long tick) {
+        slotFor(tick).add(key);
+    }
+
+    boolean sameSlot(long firstTick, long secondTick) {
+        return Math.floorMod(firstTick, slots.size()) == Math.floorMod(secondTick, slots.size());
+    }
+
+    void advance(long nowMillis, TickHandler handler) {
+        long targetTick = nowMillis / tickMs;
+        while (currentTick < targetTick) {
+            long tick = currentTick + 1;
+            Set<String> slot = slotFor(tick);
+            List<String> due = new ArrayList<>(slot);
+            slot.removeAll(due);
+            currentTick = tick;
+            for (String key : due) {
+                handler.onTick(key, tick);
+            }
+        }
+    }
+
+    private Set<String> slotFor(long tick) {
+        return slots.get(Math.floorMod(tick, slots.size()));
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+}
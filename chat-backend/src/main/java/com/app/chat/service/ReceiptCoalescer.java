@@ -0,0 +1,198 @@
+package com.app.chat.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.app.chat.entity.User;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+@Component
+public class ReceiptCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptCoalescer.class);
+
+    // Upserted rather than updated so acks are kept when the owner has no inbox row, e.g. after a clear or
+    // before a write-behind batch has landed. The affected-row count is 0 when neither watermark moved.
+    private static final String UPSERT_SQL = """
+            INSERT INTO conversation_receipts (owner_id, peer_id, delivered_through_id, read_through_id)
+            VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                delivered_through_id = GREATEST(delivered_through_id, VALUES(delivered_through_id)),
+                read_through_id = GREATEST(read_through_id, VALUES(read_through_id))
+            """;
+    private static final String MARK_READ_SQL = """
+            UPDATE conversation_summaries SET unread_count = 0
+            WHERE owner_id = ? AND peer_id = ? AND last_message_id <= ? AND unread_count > 0
+            """;
+    private static final String STORED_SQL_PREFIX = """
+            SELECT owner_id, peer_id, delivered_through_id, read_through_id
+            FROM conversation_receipts
+            WHERE (owner_id, peer_id) IN """;
+
+    private final Map<Pair, Receipt> pending = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public ReceiptCoalescer(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            SimpMessagingTemplate messagingTemplate,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("chat.receipts.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    public void acknowledge(User owner, User peer, long deliveredThroughId, long readThroughId, long latestMessageId) {
+        // Clients are not trusted to ack only what exists, and pending acks are shown to peers before they are
+        // stored. Reading a message implies it was delivered.
+        long read = Math.min(readThroughId, latestMessageId);
+        long delivered = Math.min(Math.max(deliveredThroughId, readThroughId), latestMessageId);
+        if (delivered <= 0) {
+            return;
+        }
+        Receipt receipt = new Receipt(owner.getUserId(), peer.getUsername(), delivered, Math.max(read, 0));
+        pending.merge(new Pair(owner.getId(), peer.getId()), receipt, Receipt::merge);
+    }
+
+    public Watermarks pendingWatermarks(User owner, User peer) {
+        Receipt receipt = pending.get(new Pair(owner.getId(), peer.getId()));
+        return receipt == null
+                ? new Watermarks(0, 0)
+                : new Watermarks(receipt.deliveredThroughId(), receipt.readThroughId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.receipts.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Pair> pairs = new ArrayList<>();
+        List<Receipt> receipts = new ArrayList<>();
+        for (Pair pair : pending.keySet()) {
+            Receipt receipt = pending.remove(pair);
+            if (receipt != null) {
+                pairs.add(pair);
+                receipts.add(receipt);
+            }
+        }
+
+        List<Object[]> upserts = new ArrayList<>(pairs.size());
+        List<Object[]> reads = new ArrayList<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            Receipt receipt = receipts.get(i);
+            Pair pair = pairs.get(i);
+            upserts.add(new Object[] {
+                    pair.ownerId(), pair.peerId(), receipt.deliveredThroughId(), receipt.readThroughId() });
+            if (receipt.readThroughId() > 0) {
+                reads.add(new Object[] { pair.ownerId(), pair.peerId(), receipt.readThroughId() });
+            }
+        }
+        int[] updated;
+        try {
+            updated = transactionTemplate.execute(status -> {
+                int[] counts = jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+                if (!reads.isEmpty()) {
+                    jdbcTemplate.batchUpdate(MARK_READ_SQL, reads);
+                }
+                return counts;
+            });
+        } catch (DataAccessException | TransactionException ex) {
+            // Put the acks back; anything merged in since is folded in by the max.
+            for (int i = 0; i < pairs.size(); i++) {
+                pending.merge(pairs.get(i), receipts.get(i), Receipt::merge);
+            }
+            log.warn("Writing {} receipts failed, retrying on the next flush: {}", pairs.size(), ex.getMessage());
+            return;
+        }
+        meterRegistry.summary("chat.receipts.batch.size").record(pairs.size());
+
+        Map<Pair, Receipt> stored = new HashMap<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            // Unchanged watermarks have nothing new to show the peer.
+            if (updated[i] != 0) {
+                stored.put(pairs.get(i), receipts.get(i));
+            }
+        }
+        if (!stored.isEmpty()) {
+            pushStored(stored);
+        }
+    }
+
+    private void pushStored(Map<Pair, Receipt> receipts) {
+        // Peers get what the rows now hold, which is capped and never lower than an earlier push.
+        List<Object> args = new ArrayList<>(receipts.size() * 2);
+        for (Pair pair : receipts.keySet()) {
+            args.add(pair.ownerId());
+            args.add(pair.peerId());
+        }
+        String sql = STORED_SQL_PREFIX + "(" + String.join(", ", Collections.nCopies(receipts.size(), "(?, ?)")) + ")";
+        try {
+            jdbcTemplate.query(sql, row -> {
+                Receipt receipt = receipts.get(new Pair(row.getLong("owner_id"), row.getLong("peer_id")));
+                if (receipt != null) {
+                    push(receipt.peerUsername(), Map.of(
+                            "userId", receipt.ownerUserId(),
+                            "deliveredThroughId", row.getLong("delivered_through_id"),
+                            "readThroughId", row.getLong("read_through_id")));
+                }
+            }, args.toArray());
+        } catch (DataAccessException ex) {
+            // The watermarks are stored; peers see them when they next load the conversation.
+            log.warn("Could not read back {} receipts to push: {}", receipts.size(), ex.getMessage());
+        }
+    }
+
+    private void push(String peerUsername, Map<String, Object> payload) {
+        try {
+            messagingTemplate.convertAndSendToUser(peerUsername, "/queue/receipts", payload);
+        } catch (MessagingException ex) {
+            // The watermark is stored; the peer sees it when it next loads the conversation.
+            log.warn("Could not push receipt to {}: {}", peerUsername, ex.getMessage());
+        }
+    }
+
+    public record Watermarks(long deliveredThroughId, long readThroughId) {
+    }
+
+    private record Pair(long ownerId, long peerId) {
+    }
+
+    private record Receipt(String ownerUserId, String peerUsername, long deliveredThroughId, long readThroughId) {
+
+        Receipt merge(Receipt other) {
+            return new Receipt(
+                    ownerUserId,
+                    peerUsername,
+                    Math.max(deliveredThroughId, other.deliveredThroughId),
+                    Math.max(readThroughId, other.readThroughId));
+        }
+    }
+}
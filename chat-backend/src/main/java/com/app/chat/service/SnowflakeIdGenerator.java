@@ -0,0 +1,69 @@
+package com.app.chat.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SnowflakeIdGenerator {
+
+    // 41 bits of milliseconds since 2024-01-01T00:00:00Z, 5 bits of node, 7 bits of sequence. The total
+    // stays within 53 bits so ids survive JSON numbers in the browser without losing precision.
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 7;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    private final AtomicLong lastState = new AtomicLong();
+
+    @Autowired
+    public SnowflakeIdGenerator(
+            @Value("${app.ids.node-id:}") Long nodeId,
+            @Value("${app.websocket.broker:simple}") String brokerMode) {
+        this(requireNodeId(nodeId, brokerMode), System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("app.ids.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public static long firstIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH_MILLIS) << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    public long nextId() {
+        long now = clock.getAsLong() - EPOCH_MILLIS;
+        long next;
+        long previous;
+        do {
+            previous = lastState.get();
+            // State is timestamp << SEQUENCE_BITS | sequence. When the clock has not moved (or stepped back),
+            // bumping it overflows the sequence into the next millisecond instead of spinning.
+            next = Math.max(previous + 1, now << SEQUENCE_BITS);
+        } while (!lastState.compareAndSet(previous, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | sequence;
+    }
+
+    private static long requireNodeId(Long nodeId, String brokerMode) {
+        if (nodeId != null) {
+            return nodeId;
+        }
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // Relay mode runs several instances against one database; all of them defaulting to node 0 collide.
+            throw new IllegalStateException("app.ids.node-id (NODE_ID) must be set when app.websocket.broker=relay");
+        }
+        return 0;
+    }
+}
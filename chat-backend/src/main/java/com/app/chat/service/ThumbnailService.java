@@ -0,0 +1,213 @@
+package com.app.chat.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final Map<String, Integer> VARIANTS = Map.of("thumb", 320, "preview", 1280);
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final ThreadPoolExecutor executor;
+    // Every variant miss on download schedules a job, so the same original is often requested many times at once.
+    private final Set<Path> inProgress = ConcurrentHashMap.newKeySet();
+    private final MeterRegistry meterRegistry;
+
+    public ThumbnailService(
+            @Value("${app.thumbnails.threads:2}") int threads,
+            @Value("${app.thumbnails.queue-capacity:200}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("thumbnail-"));
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gaugeCollectionSize("files.thumbnail.queue", List.of(), executor.getQueue());
+    }
+
+    public boolean isSupportedVariant(String variant) {
+        return VARIANTS.containsKey(variant);
+    }
+
+    public Path variantPath(Path original, String variant) {
+        if (!isSupportedVariant(variant)) {
+            throw new IllegalArgumentException("Unknown variant");
+        }
+        return original.resolveSibling(original.getFileName() + "." + variant + ".jpg");
+    }
+
+    public void schedule(Path original, String fileName) {
+        if (!isImage(fileName) || !inProgress.add(original)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(original);
+                } finally {
+                    inProgress.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // Variants are an optimisation; downloads fall back to the original and retry later.
+            inProgress.remove(original);
+            meterRegistry.counter("files.thumbnail.rejected").increment();
+        }
+    }
+
+    public void deleteVariants(Path original) {
+        for (String variant : VARIANTS.keySet()) {
+            try {
+                Files.deleteIfExists(variantPath(original, variant));
+            } catch (IOException ex) {
+                log.warn("Could not delete {} variant of {}: {}", variant, original.getFileName(), ex.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(Path original) {
+        if (VARIANTS.keySet().stream().allMatch(variant -> Files.exists(variantPath(original, variant)))) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "ok";
+        try {
+            int largest = VARIANTS.values().stream().max(Integer::compare).orElseThrow();
+            BufferedImage source = readSubsampled(original, largest);
+            if (source == null) {
+                outcome = "unsupported";
+                return;
+            }
+            for (Map.Entry<String, Integer> variant : VARIANTS.entrySet()) {
+                Path target = variantPath(original, variant.getKey());
+                if (!Files.exists(target)) {
+                    writeJpeg(scale(source, variant.getValue()), target);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            outcome = "failed";
+            log.warn("Could not generate thumbnails for {}: {}", original.getFileName(), ex.getMessage());
+        } finally {
+            sample.stop(meterRegistry.timer("files.thumbnail", "outcome", outcome));
+        }
+    }
+
+    private static BufferedImage readSubsampled(Path original, int targetEdge) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    return null;
+                }
+                // Decoding only every Nth row/column, with N chosen so the long edge still comes out at least twice
+                // targetEdge, keeps big camera photos from being inflated in full.
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (targetEdge * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxEdge) {
+        double ratio = Math.min(1.0, (double) maxEdge / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            writer.dispose();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean isImage(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName)
+                .map(type -> "image".equals(type.getType()) && !MediaType.IMAGE_GIF.equals(type))
+                .orElse(false);
+    }
+}
@@ -0,0 +1,43 @@
+package com.app.chat.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+@Component
+public class TypingThrottle {
+
+    private static final Duration STATE_RETENTION = Duration.ofSeconds(30);
+
+    private final long coalesceWindowMs;
+    private final Cache<String, Long> lastForwardedAt;
+
+    public TypingThrottle(@Value("${app.chat.typing.coalesce-ms:1000}") long coalesceWindowMs) {
+        this.coalesceWindowMs = coalesceWindowMs;
+        this.lastForwardedAt = Caffeine.newBuilder()
+                .expireAfterWrite(STATE_RETENTION)
+                .build();
+    }
+
+    public boolean shouldForward(Long senderId, Long receiverId, boolean typing) {
+        String pair = senderId + ":" + receiverId;
+        if (!typing) {
+            return lastForwardedAt.asMap().remove(pair) != null;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean[] forward = new boolean[1];
+        lastForwardedAt.asMap().compute(pair, (key, last) -> {
+            if (last != null && now - last < coalesceWindowMs) {
+                return last;
+            }
+            forward[0] = true;
+            return now;
+        });
+        return forward[0];
+    }
+}
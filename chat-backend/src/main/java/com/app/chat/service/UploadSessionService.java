@@ -0,0 +1,251 @@
+package com.app.chat.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.app.chat.entity.User;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Service
+public class UploadSessionService {
+
+    private static final int CHUNK_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_SESSIONS_PER_USER = 16;
+    private static final long SUGGESTED_CHUNK_SIZE = 4L * 1024 * 1024;
+
+    private final FileService fileService;
+    private final UserService userService;
+    private final MeterRegistry meterRegistry;
+    private final Duration sessionTtl;
+    // Sessions and their partial files live on the node that created them, so with several nodes the
+    // /api/files/sessions routes have to be sticky (see app.upload.session.ttl).
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public UploadSessionService(
+            FileService fileService,
+            UserService userService,
+            MeterRegistry meterRegistry,
+            @Value("${app.upload.session.ttl:24h}") Duration sessionTtl) {
+        this.fileService = fileService;
+        this.userService = userService;
+        this.meterRegistry = meterRegistry;
+        this.sessionTtl = sessionTtl;
+        meterRegistry.gaugeMapSize("files.upload.sessions", List.of(), sessions);
+    }
+
+    public Map<String, Object> createSession(String originalName, long size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        String cleanName = fileService.checkUpload(originalName, size);
+        User owner = userService.getCurrentUser();
+        long open = sessions.values().stream().filter(session -> session.ownerId.equals(owner.getId())).count();
+        if (open >= MAX_SESSIONS_PER_USER) {
+            throw new IllegalArgumentException("Too many uploads in progress");
+        }
+
+        UploadSession session = new UploadSession(
+                UUID.randomUUID().toString(), owner.getId(), cleanName, size, fileService.createPartialFile());
+        sessions.put(session.id, session);
+        Map<String, Object> response = describe(session);
+        response.put("chunkSize", Math.min(SUGGESTED_CHUNK_SIZE, size));
+        return response;
+    }
+
+    public Map<String, Object> getSession(String sessionId) {
+        return describe(requireSession(sessionId));
+    }
+
+    public Map<String, Object> writeChunk(String sessionId, long offset, InputStream body) {
+        UploadSession session = requireSession(sessionId);
+        if (offset < 0 || offset >= session.size) {
+            throw new IllegalArgumentException("Offset is outside the file");
+        }
+
+        session.begin();
+        long position = offset;
+        try (ReadableByteChannel in = Channels.newChannel(body);
+                FileChannel out = FileChannel.open(session.partial, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BUFFER_SIZE);
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                if (position + buffer.remaining() > session.size) {
+                    throw new IllegalArgumentException("Chunk runs past the declared file size");
+                }
+                // Positional writes leave the channel position alone, so chunks can land concurrently.
+                while (buffer.hasRemaining()) {
+                    position += out.write(buffer, position);
+                }
+                buffer.clear();
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to write chunk", ex);
+        } finally {
+            // Whatever reached the file before a disconnect still counts, so the client resumes from there.
+            session.end(offset, position);
+        }
+
+        meterRegistry.counter("files.upload.chunks").increment();
+        meterRegistry.summary("files.upload.chunk.bytes").record(position - offset);
+        return describe(session);
+    }
+
+    public Map<String, Object> complete(String sessionId) {
+        UploadSession session = requireSession(sessionId);
+        session.beginCompletion();
+        sessions.remove(session.id);
+        return fileService.commitPartial(session.partial, session.fileName);
+    }
+
+    public void abort(String sessionId) {
+        UploadSession session = requireSession(sessionId);
+        sessions.remove(session.id);
+        fileService.deletePartial(session.partial);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void expireSessions() {
+        Instant cutoff = Instant.now().minus(sessionTtl);
+        Iterator<UploadSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            UploadSession session = iterator.next();
+            if (session.expireIfIdleSince(cutoff)) {
+                iterator.remove();
+                fileService.deletePartial(session.partial);
+                meterRegistry.counter("files.upload.sessions.expired").increment();
+            }
+        }
+        fileService.deleteStalePartials(cutoff, sessions.values().stream().map(session -> session.partial).toList());
+    }
+
+    private UploadSession requireSession(String sessionId) {
+        UploadSession session = sessions.get(sessionId);
+        if (session == null || !session.ownerId.equals(userService.getCurrentUser().getId())) {
+            throw new IllegalArgumentException("Upload session not found");
+        }
+        return session;
+    }
+
+    private Map<String, Object> describe(UploadSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("sessionId", session.id);
+        response.put("fileName", session.fileName);
+        response.put("size", session.size);
+        synchronized (session) {
+            response.put("receivedBytes", session.receivedBytes());
+            response.put("ranges", session.ranges());
+            response.put("expiresAt", session.lastActivity.plus(sessionTtl).toString());
+        }
+        return response;
+    }
+
+    private static final class UploadSession {
+
+        private final String id;
+        private final Long ownerId;
+        private final String fileName;
+        private final long size;
+        private final Path partial;
+        private final TreeMap<Long, Long> received = new TreeMap<>();
+        private Instant lastActivity = Instant.now();
+        private int inFlight;
+        private boolean completing;
+
+        private UploadSession(String id, Long ownerId, String fileName, long size, Path partial) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.fileName = fileName;
+            this.size = size;
+            this.partial = partial;
+        }
+
+        private synchronized void begin() {
+            if (completing) {
+                throw new IllegalArgumentException("Upload session not found");
+            }
+            inFlight++;
+            lastActivity = Instant.now();
+        }
+
+        private synchronized void end(long start, long end) {
+            inFlight--;
+            lastActivity = Instant.now();
+            if (end > start) {
+                addRange(start, end);
+            }
+        }
+
+        private synchronized void beginCompletion() {
+            if (completing) {
+                throw new IllegalArgumentException("Upload session not found");
+            }
+            if (inFlight > 0) {
+                throw new IllegalArgumentException("Chunks are still being written");
+            }
+            if (receivedBytes() != size) {
+                throw new IllegalArgumentException("Upload is incomplete");
+            }
+            completing = true;
+        }
+
+        private synchronized boolean expireIfIdleSince(Instant cutoff) {
+            // Closing the session under its lock keeps a chunk that already looked it up from starting a write
+            // into the partial file that is about to be deleted.
+            if (completing || inFlight > 0 || !lastActivity.isBefore(cutoff)) {
+                return false;
+            }
+            completing = true;
+            return true;
+        }
+
+        private void addRange(long start, long end) {
+            Map.Entry<Long, Long> before = received.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> next = received.ceilingEntry(start);
+            while (next != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                received.remove(next.getKey());
+                next = received.ceilingEntry(start);
+            }
+            received.put(start, end);
+        }
+
+        private long receivedBytes() {
+            long total = 0;
+            for (Map.Entry<Long, Long> range : received.entrySet()) {
+                total += range.getValue() - range.getKey();
+            }
+            return total;
+        }
+
+        private List<long[]> ranges() {
+            List<long[]> ranges = new ArrayList<>(received.size());
+            received.forEach((start, end) -> ranges.add(new long[] { start, end }));
+            return ranges;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.app.chat.service;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -11,10 +12,15 @@ import com.app.chat.repository.UserRepository;
 @Service
 public class UserService {
 
+    private static final int DEFAULT_TYPEAHEAD_SIZE = 10;
+    private static final int MAX_TYPEAHEAD_SIZE = 20;
+
     private final UserRepository userRepository;
+    private final UserTypeaheadIndex userTypeaheadIndex;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserTypeaheadIndex userTypeaheadIndex) {
         this.userRepository = userRepository;
+        this.userTypeaheadIndex = userTypeaheadIndex;
     }
 
     public Map<String, String> getMe() {
@@ -35,6 +41,17 @@ public class UserService {
                 "displayName", user.getDisplayName());
     }
 
+    public List<Map<String, String>> typeahead(String query, Integer limit) {
+        User me = getCurrentUser();
+        int size = limit == null ? DEFAULT_TYPEAHEAD_SIZE : Math.max(1, Math.min(limit, MAX_TYPEAHEAD_SIZE));
+        return userTypeaheadIndex.suggest(query, size, me.getUserId()).stream()
+                .map(suggestion -> Map.of(
+                        "userId", suggestion.userId(),
+                        "username", suggestion.username(),
+                        "displayName", suggestion.displayName()))
+                .toList();
+    }
+
     public User getCurrentUser() {
         Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         if (principal instanceof User user) {
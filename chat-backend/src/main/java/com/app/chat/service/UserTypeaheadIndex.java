@@ -0,0 +1,124 @@
+package com.app.chat.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.app.chat.entity.User;
+import com.app.chat.repository.UserRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Component
+public class UserTypeaheadIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserTypeaheadIndex.class);
+    // Sorts before every other character, so an exact match comes ahead of longer keys sharing its prefix.
+    private static final char KEY_SEPARATOR = '\0';
+    private static final int LOAD_BATCH_SIZE = 1000;
+    // Identity ids can commit out of order, so each refresh re-reads a few rows below the last one seen.
+    private static final long REFRESH_OVERLAP = 100;
+
+    private final NavigableMap<String, Suggestion> entries = new ConcurrentSkipListMap<>();
+    private final UserRepository userRepository;
+    private long loadedThroughId;
+
+    public UserTypeaheadIndex(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        Gauge.builder("users.typeahead.entries", entries, Map::size).register(meterRegistry);
+    }
+
+    public void add(User user) {
+        Suggestion suggestion = new Suggestion(user.getUserId(), user.getUsername(), user.getDisplayName());
+        for (String term : terms(user)) {
+            entries.put(term + KEY_SEPARATOR + user.getUserId(), suggestion);
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit, String excludeUserId) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        // Every key starting with the prefix sorts between the prefix itself and prefix + the highest char.
+        Map<String, Suggestion> matches = entries.subMap(normalized, true, normalized + Character.MAX_VALUE, false);
+        Set<String> seen = new HashSet<>();
+        List<Suggestion> results = new ArrayList<>(limit);
+        for (Suggestion suggestion : matches.values()) {
+            if (suggestion.userId().equals(excludeUserId) || !seen.add(suggestion.userId())) {
+                continue;
+            }
+            results.add(suggestion);
+            if (results.size() == limit) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        int loaded = loadNewUsers();
+        log.info("Built user typeahead index with {} users", loaded);
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.users.typeahead.refresh-interval-ms:30000}",
+            fixedDelayString = "${app.users.typeahead.refresh-interval-ms:30000}")
+    public void refresh() {
+        // Registrations on this node are added directly; this picks up users registered on other nodes.
+        loadNewUsers();
+    }
+
+    private synchronized int loadNewUsers() {
+        long afterId = Math.max(0, loadedThroughId - REFRESH_OVERLAP);
+        int loaded = 0;
+        List<User> batch;
+        do {
+            batch = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            batch.forEach(this::add);
+            loaded += batch.size();
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        loadedThroughId = Math.max(loadedThroughId, afterId);
+        return loaded;
+    }
+
+    private static Set<String> terms(User user) {
+        Set<String> terms = new LinkedHashSet<>();
+        terms.add(normalize(user.getUserId()));
+        terms.add(normalize(user.getUsername()));
+        String displayName = normalize(user.getDisplayName());
+        terms.add(displayName);
+        // Later words of a display name are searchable too, so "smith" finds "Jane Smith".
+        for (String word : displayName.split("\\s+")) {
+            terms.add(word);
+        }
+        terms.remove("");
+        return terms;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public record Suggestion(String userId, String username, String displayName) {
+    }
+}
@@ -0,0 +1,258 @@
+package com.app.chat.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.app.chat.entity.ChatGroup;
+import com.app.chat.entity.ConversationClear;
+import com.app.chat.entity.DeletedMessage;
+import com.app.chat.entity.GroupMember;
+import com.app.chat.entity.Message;
+import com.app.chat.entity.User;
+import com.app.chat.repository.ConversationClearRepository;
+import com.app.chat.repository.ConversationReceiptRepository;
+import com.app.chat.repository.ConversationSummaryRepository;
+import com.app.chat.repository.DeletedMessageRepository;
+import com.app.chat.repository.MessageRepository;
+import com.app.chat.repository.UserRepository;
+
+@DataJpaTest
+@Import(SnowflakeIdGenerator.class)
+class ChatServiceSyncTests {
+
+    private static final PageRequest ALL = PageRequest.of(0, 100);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    private final UserService userService = mock(UserService.class);
+    private final MessageWriteBehind messageWriteBehind = mock(MessageWriteBehind.class);
+
+    private ChatService chatService;
+    private User alice;
+    private User bob;
+    private User carol;
+    private User dave;
+    private ChatGroup group;
+
+    @BeforeEach
+    void setUp() {
+        alice = persistUser("alice");
+        bob = persistUser("bob");
+        carol = persistUser("carol");
+        dave = persistUser("dave");
+        group = new ChatGroup();
+        group.setName("weekend");
+        group.setOwner(carol);
+        entityManager.persist(group);
+        for (User member : List.of(alice, bob, carol)) {
+            GroupMember membership = new GroupMember();
+            membership.setGroup(group);
+            membership.setUser(member);
+            entityManager.persist(membership);
+        }
+
+        when(userService.getCurrentUser()).thenReturn(alice);
+        when(messageWriteBehind.settledThroughId(anyLong())).thenReturn(Long.MAX_VALUE);
+        chatService = new ChatService(
+                userService,
+                mock(UserRepository.class),
+                messageRepository,
+                mock(DeletedMessageRepository.class),
+                mock(ConversationClearRepository.class),
+                mock(SimpMessagingTemplate.class),
+                mock(TypingThrottle.class),
+                mock(FriendCache.class),
+                mock(FileService.class),
+                messageWriteBehind,
+                mock(ConversationSummaryRepository.class),
+                mock(ConversationReceiptRepository.class),
+                mock(ReceiptCoalescer.class),
+                mock(GroupService.class),
+                mock(MessageSearchIndex.class),
+                0);
+    }
+
+    @Test
+    void syncMergesSentReceivedAndGroupMessagesInIdOrder() {
+        Message received = persistMessage(bob, alice, "from bob");
+        persistMessage(bob, carol, "not for alice");
+        Message group1 = persistGroupMessage(carol, "from carol");
+        Message sent = persistMessage(alice, bob, "to bob");
+        Message ownGroup = persistGroupMessage(alice, "to the group");
+        Message group2 = persistGroupMessage(bob, "from bob to the group");
+
+        Map<String, Object> page = chatService.sync(0L, 10);
+
+        assertThat(ids(page)).containsExactly(
+                received.getId(), group1.getId(), sent.getId(), ownGroup.getId(), group2.getId());
+        assertThat(page.get("hasMore")).isEqualTo(false);
+        assertThat(page.get("nextCursor")).isEqualTo(group2.getId());
+    }
+
+    @Test
+    void syncPagesOnIdBoundariesAcrossSources() {
+        Message first = persistMessage(alice, bob, "1");
+        Message second = persistMessage(bob, alice, "2");
+        Message third = persistGroupMessage(carol, "3");
+        Message fourth = persistMessage(bob, alice, "4");
+        Message fifth = persistGroupMessage(alice, "5");
+
+        Map<String, Object> page = chatService.sync(0L, 2);
+        assertThat(ids(page)).containsExactly(first.getId(), second.getId());
+        assertThat(page.get("hasMore")).isEqualTo(true);
+        assertThat(page.get("nextCursor")).isEqualTo(second.getId());
+
+        page = chatService.sync(second.getId(), 2);
+        assertThat(ids(page)).containsExactly(third.getId(), fourth.getId());
+        assertThat(page.get("hasMore")).isEqualTo(true);
+
+        page = chatService.sync(fourth.getId(), 2);
+        assertThat(ids(page)).containsExactly(fifth.getId());
+        assertThat(page.get("hasMore")).isEqualTo(false);
+        assertThat(page.get("nextCursor")).isEqualTo(fifth.getId());
+
+        page = chatService.sync(fifth.getId(), 2);
+        assertThat(ids(page)).isEmpty();
+        assertThat(page.get("hasMore")).isEqualTo(false);
+        assertThat(page.get("nextCursor")).isEqualTo(fifth.getId());
+    }
+
+    @Test
+    void syncReportsNoMoreWhenLastPageIsExactlyFull() {
+        persistMessage(alice, bob, "1");
+        Message second = persistMessage(bob, alice, "2");
+
+        Map<String, Object> page = chatService.sync(0L, 2);
+
+        assertThat(ids(page)).hasSize(2);
+        assertThat(page.get("hasMore")).isEqualTo(false);
+        assertThat(page.get("nextCursor")).isEqualTo(second.getId());
+    }
+
+    @Test
+    void syncHoldsBackMessagesAboveTheSettledWatermark() {
+        Message settled = persistMessage(bob, alice, "settled");
+        Message pending = persistGroupMessage(carol, "pending");
+        when(messageWriteBehind.settledThroughId(anyLong())).thenReturn(settled.getId());
+
+        assertThat(ids(chatService.sync(0L, 10))).containsExactly(settled.getId());
+        assertThat(chatService.sync(null, 10).get("nextCursor")).isEqualTo(settled.getId());
+
+        when(messageWriteBehind.settledThroughId(anyLong())).thenReturn(Long.MAX_VALUE);
+        assertThat(chatService.sync(null, 10).get("nextCursor")).isEqualTo(pending.getId());
+    }
+
+    @Test
+    void findSentAfterSkipsClearedAndDeletedMessages() {
+        Message cleared = persistMessage(alice, bob, "cleared");
+        Message kept = persistMessage(alice, bob, "kept");
+        Message deleted = persistMessage(alice, bob, "deleted");
+        Message otherConversation = persistMessage(alice, carol, "other");
+        persistClear(alice, cleared.getConversationKey(), cleared.getId());
+        persistDeletion(alice, deleted);
+
+        assertThat(messageRepository.findSentAfter(alice, 0L, Long.MAX_VALUE, ALL))
+                .extracting(Message::getId)
+                .containsExactly(kept.getId(), otherConversation.getId());
+        assertThat(messageRepository.findReceivedAfter(bob, 0L, Long.MAX_VALUE, ALL))
+                .extracting(Message::getId)
+                .containsExactly(cleared.getId(), kept.getId(), deleted.getId());
+    }
+
+    @Test
+    void findReceivedAfterSkipsClearedAndDeletedMessages() {
+        Message cleared = persistMessage(bob, alice, "cleared");
+        Message kept = persistMessage(bob, alice, "kept");
+        Message deleted = persistMessage(bob, alice, "deleted");
+        persistMessage(bob, carol, "not for alice");
+        persistClear(alice, cleared.getConversationKey(), cleared.getId());
+        persistDeletion(alice, deleted);
+
+        assertThat(messageRepository.findReceivedAfter(alice, 0L, Long.MAX_VALUE, ALL))
+                .extracting(Message::getId)
+                .containsExactly(kept.getId());
+        assertThat(messageRepository.findSentAfter(bob, 0L, Long.MAX_VALUE, ALL)).hasSize(4);
+    }
+
+    @Test
+    void findGroupReceivedAfterSkipsClearedDeletedAndOwnMessages() {
+        Message cleared = persistGroupMessage(carol, "cleared");
+        Message kept = persistGroupMessage(bob, "kept");
+        Message deleted = persistGroupMessage(carol, "deleted");
+        Message own = persistGroupMessage(alice, "own");
+        persistClear(alice, cleared.getConversationKey(), cleared.getId());
+        persistDeletion(alice, deleted);
+
+        assertThat(messageRepository.findGroupReceivedAfter(alice, 0L, Long.MAX_VALUE, ALL))
+                .extracting(Message::getId)
+                .containsExactly(kept.getId());
+        assertThat(messageRepository.findGroupReceivedAfter(bob, 0L, Long.MAX_VALUE, ALL))
+                .extracting(Message::getId)
+                .containsExactly(cleared.getId(), deleted.getId(), own.getId());
+        assertThat(messageRepository.findGroupReceivedAfter(dave, 0L, Long.MAX_VALUE, ALL)).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> ids(Map<String, Object> page) {
+        return ((List<Map<String, Object>>) page.get("messages")).stream()
+                .map(message -> (Long) message.get("id"))
+                .toList();
+    }
+
+    private User persistUser(String username) {
+        User user = new User();
+        user.setUserId("USR" + username.toUpperCase());
+        user.setUsername(username);
+        user.setPassword("secret");
+        return entityManager.persist(user);
+    }
+
+    private Message persistMessage(User sender, User receiver, String content) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setContent(content);
+        return entityManager.persist(message);
+    }
+
+    private Message persistGroupMessage(User sender, String content) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setGroup(group);
+        message.setContent(content);
+        return entityManager.persist(message);
+    }
+
+    private void persistClear(User user, String conversationKey, long throughId) {
+        ConversationClear clear = new ConversationClear();
+        clear.setUser(user);
+        clear.setConversationKey(conversationKey);
+        clear.setClearedThroughMessageId(throughId);
+        entityManager.persist(clear);
+    }
+
+    private void persistDeletion(User user, Message message) {
+        DeletedMessage deletion = new DeletedMessage();
+        deletion.setUser(user);
+        deletion.setMessage(message);
+        entityManager.persist(deletion);
+    }
+}
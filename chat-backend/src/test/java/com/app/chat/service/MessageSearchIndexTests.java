@@ -0,0 +1,139 @@
+package com.app.chat.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.app.chat.entity.Message;
+import com.app.chat.repository.MessageRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessageSearchIndexTests {
+
+    @TempDir
+    Path indexDir;
+
+    private MessageSearchIndex index;
+
+    @AfterEach
+    void close() {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void ranksByTermRarityFrequencyAndLength() {
+        index = open();
+        index.index(message(1, "1:2", "pizza tonight"));
+        index.index(message(2, "1:2", "pizza pizza pizza tonight"));
+        index.index(message(3, "1:2", "tonight works"));
+        index.index(message(4, "1:2", "see you tonight"));
+
+        assertThat(ids(index.search("pizza tonight", Set.of("1:2"), 10))).containsExactly(2L, 1L, 3L, 4L);
+    }
+
+    @Test
+    void breaksScoreTiesByNewestMessage() {
+        index = open();
+        index.index(message(1, "1:2", "lunch"));
+        index.index(message(2, "1:2", "lunch"));
+
+        assertThat(ids(index.search("lunch", Set.of("1:2"), 10))).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void onlySearchesTheGivenConversations() {
+        index = open();
+        index.index(message(1, "1:2", "pizza"));
+        index.index(message(2, "2:3", "pizza"));
+        index.index(message(3, "g:12", "pizza"));
+
+        assertThat(ids(index.search("pizza", Set.of("1:2", "g:12"), 10))).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(index.search("pizza", Set.of(), 10)).isEmpty();
+    }
+
+    @Test
+    void tracksDirectConversationsByParticipant() {
+        index = open();
+        index.index(message(1, "1:2", "hello"));
+        index.index(message(2, "2:3", "hello"));
+        index.index(message(3, "g:2", "hello"));
+
+        assertThat(index.directConversationKeys(2)).containsExactlyInAnyOrder("1:2", "2:3");
+        assertThat(index.directConversationKeys(1)).containsExactly("1:2");
+        assertThat(index.directConversationKeys(12)).isEmpty();
+    }
+
+    @Test
+    void replaysTheLogOnRestart() {
+        index = open();
+        index.index(message(1, "1:2", "pizza tonight"));
+        index.index(message(2, "2:3", "pizza"));
+        index.close();
+
+        index = open();
+
+        assertThat(ids(index.search("pizza", Set.of("1:2", "2:3"), 10))).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.directConversationKeys(3)).containsExactly("2:3");
+    }
+
+    @Test
+    void truncatesAPartialTrailingRecord() throws IOException {
+        index = open();
+        index.index(message(1, "1:2", "pizza"));
+        index.close();
+        Path logFile = indexDir.resolve("messages.log");
+        long validBytes = Files.size(logFile);
+        Files.write(logFile, new byte[] { 0, 0, 0, 40, 'M', 1 }, StandardOpenOption.APPEND);
+
+        index = open();
+        assertThat(Files.size(logFile)).isEqualTo(validBytes);
+        index.index(message(2, "1:2", "pizza"));
+        index.close();
+
+        index = open();
+        assertThat(ids(index.search("pizza", Set.of("1:2"), 10))).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void ignoresMessagesIndexedTwice() {
+        index = open();
+        index.index(message(1, "1:2", "pizza"));
+        index.index(message(1, "1:2", "pizza"));
+
+        assertThat(index.search("pizza", Set.of("1:2"), 10)).hasSize(1);
+    }
+
+    private MessageSearchIndex open() {
+        return new MessageSearchIndex(
+                indexDir.toString(),
+                0,
+                mock(MessageRepository.class),
+                mock(MessageWriteBehind.class),
+                new SimpleMeterRegistry());
+    }
+
+    private static Message message(long id, String conversationKey, String content) {
+        Message message = new Message();
+        message.setId(id);
+        message.setConversationKey(conversationKey);
+        message.setContent(content);
+        return message;
+    }
+
+    private static List<Long> ids(List<MessageSearchIndex.Hit> hits) {
+        return hits.stream().map(MessageSearchIndex.Hit::messageId).toList();
+    }
+}
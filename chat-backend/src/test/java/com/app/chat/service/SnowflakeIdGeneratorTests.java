@@ -0,0 +1,126 @@
+package com.app.chat.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class SnowflakeIdGeneratorTests {
+
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    @Test
+    void packsTimestampNodeAndSequence() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, () -> EPOCH_MILLIS + 1_000);
+
+        assertThat(generator.nextId()).isEqualTo((1_000L << 12) | (3L << 7));
+        assertThat(generator.nextId()).isEqualTo((1_000L << 12) | (3L << 7) | 1);
+    }
+
+    @Test
+    void staysWithinJavaScriptSafeIntegers() {
+        long lastMillis = EPOCH_MILLIS + (1L << 41) - 1;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(31, () -> lastMillis);
+
+        long id = generator.nextId();
+
+        assertThat(id).isLessThan(1L << 53);
+        assertThat(id >>> 12).isEqualTo((1L << 41) - 1);
+    }
+
+    @Test
+    void rollsSequenceOverIntoNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, () -> EPOCH_MILLIS + 500);
+
+        long last = 0;
+        for (int i = 0; i < 128; i++) {
+            last = generator.nextId();
+        }
+        long rolled = generator.nextId();
+
+        assertThat(last & 0x7f).isEqualTo(127);
+        assertThat(last >>> 12).isEqualTo(500);
+        assertThat(rolled & 0x7f).isZero();
+        assertThat(rolled >>> 12).isEqualTo(501);
+        assertThat((rolled >>> 7) & 0x1f).isEqualTo(1);
+    }
+
+    @Test
+    void staysMonotonicWhenClockStepsBack() {
+        AtomicLong clock = new AtomicLong(EPOCH_MILLIS + 2_000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0, clock::get);
+
+        long before = generator.nextId();
+        clock.set(EPOCH_MILLIS + 1_000);
+        long after = generator.nextId();
+        clock.set(EPOCH_MILLIS + 3_000);
+        long recovered = generator.nextId();
+
+        assertThat(after).isGreaterThan(before);
+        assertThat(recovered).isGreaterThan(after);
+        assertThat(recovered >>> 12).isEqualTo(3_000);
+    }
+
+    @Test
+    void generatesUniqueIdsAcrossThreads() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, System::currentTimeMillis);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(80_000);
+    }
+
+    @Test
+    void firstIdAtBoundsIdsOfThatMillisecond() {
+        long millis = EPOCH_MILLIS + 86_400_000L;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(31, () -> millis);
+
+        long id = generator.nextId();
+
+        assertThat(SnowflakeIdGenerator.firstIdAt(millis)).isEqualTo(86_400_000L << 12);
+        assertThat(id).isGreaterThanOrEqualTo(SnowflakeIdGenerator.firstIdAt(millis));
+        assertThat(id).isLessThan(SnowflakeIdGenerator.firstIdAt(millis + 1));
+        assertThat(SnowflakeIdGenerator.firstIdAt(EPOCH_MILLIS - 1_000)).isZero();
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideFiveBits() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1, System::currentTimeMillis))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(32, System::currentTimeMillis))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void requiresNodeIdInRelayMode() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(null, "relay"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat((new SnowflakeIdGenerator(4L, "relay").nextId() >>> 7) & 0x1f).isEqualTo(4);
+        assertThat((new SnowflakeIdGenerator(null, "simple").nextId() >>> 7) & 0x1f).isZero();
+    }
+}
@@ -29,8 +29,8 @@ export default function ChatContactPage() {
   useEffect(() => {
     async function load() {
       try {
-        const { data } = await api.get("/api/chat/messages", { params: { userId: friendUserId } });
-        setMessages(Array.isArray(data) ? data : []);
+        const { data } = await api.get("/api/chat/messages", { params: { userId: friendUserId, limit: 200 } });
+        setMessages(Array.isArray(data.messages) ? data.messages : []);
       } catch {
         toast.error("Could not load contact media");
       }
@@ -57,7 +57,10 @@ export default function ChatContactPage() {
       for (const item of mediaItems) {
         if (mediaPreviewMap[item.fileUrl]) continue;
         try {
-          const { data, headers } = await api.get(item.fileUrl, { responseType: "blob" });
+          const { data, headers } = await api.get(item.fileUrl, {
+            params: { variant: "thumb" },
+            responseType: "blob",
+          });
           const mimeType = headers["content-type"] || data.type || "application/octet-stream";
           newEntries[item.fileUrl] = {
             url: URL.createObjectURL(data),
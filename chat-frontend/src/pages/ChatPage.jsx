@@ -4,13 +4,15 @@ import { toast } from "react-toastify";
 import SockJS from "sockjs-client";
 import { Client } from "@stomp/stompjs";
 import { api } from "../lib/api";
-import { getToken } from "../lib/auth";
+import { getAuth, getToken } from "../lib/auth";
 
 export default function ChatPage() {
   const { friendUserId } = useParams();
   const { state } = useLocation();
   const navigate = useNavigate();
   const [messages, setMessages] = useState([]);
+  const [olderCursor, setOlderCursor] = useState(null);
+  const [loadingOlder, setLoadingOlder] = useState(false);
   const [text, setText] = useState("");
   const [loading, setLoading] = useState(false);
   const [uploading, setUploading] = useState(false);
@@ -22,7 +24,12 @@ export default function ChatPage() {
   const [nowTick, setNowTick] = useState(Date.now());
   const [attachmentMap, setAttachmentMap] = useState({});
   const [previewModal, setPreviewModal] = useState(null);
+  const [peerReceipts, setPeerReceipts] = useState({ deliveredThroughId: 0, readThroughId: 0 });
   const stompRef = useRef(null);
+  const syncCursorRef = useRef(null);
+  const syncingRef = useRef(false);
+  // olderCursor is null both before the first page arrives and once history is exhausted; this tells them apart.
+  const firstPageLoadedRef = useRef(false);
   const endRef = useRef(null);
   const attachmentMapRef = useRef({});
   const typingHideRef = useRef(null);
@@ -51,15 +58,88 @@ export default function ChatPage() {
     });
   }
 
+  function mergeReceipts(deliveredThroughId, readThroughId) {
+    setPeerReceipts((prev) => ({
+      deliveredThroughId: Math.max(prev.deliveredThroughId, deliveredThroughId || 0),
+      readThroughId: Math.max(prev.readThroughId, readThroughId || 0),
+    }));
+  }
+
+  function markRead(messageId) {
+    api.post("/api/chat/read", null, { params: { userId: friendUserId, messageId } }).catch(() => {
+      // unread counts catch up on the next read
+    });
+  }
+
+  function markDelivered(message) {
+    api
+      .post("/api/chat/receipts", { peerUserId: message.senderUserId, deliveredThroughId: message.id })
+      .catch(() => {
+        // the sender sees the tick once the conversation is opened
+      });
+  }
+
   async function fetchMessages() {
     try {
       const { data } = await api.get("/api/chat/messages", { params: { userId: friendUserId } });
-      mergeMessages(data);
+      mergeMessages(data.messages || []);
+      mergeReceipts(data.peerDeliveredThroughId, data.peerReadThroughId);
+      markRead();
+      if (!firstPageLoadedRef.current) {
+        firstPageLoadedRef.current = true;
+        setOlderCursor(data.nextCursor ?? null);
+      }
     } catch {
       toast.error("Could not load conversation");
     }
   }
 
+  async function initSyncCursor() {
+    try {
+      const { data } = await api.get("/api/chat/sync");
+      syncCursorRef.current = data.nextCursor ?? 0;
+    } catch {
+      syncCursorRef.current = null;
+    }
+  }
+
+  async function syncMessages() {
+    if (syncCursorRef.current === null || syncingRef.current) return;
+    syncingRef.current = true;
+    try {
+      let hasMore = true;
+      while (hasMore) {
+        const { data } = await api.get("/api/chat/sync", { params: { cursor: syncCursorRef.current } });
+        const batch = (data.messages || []).filter((m) => !m.groupId);
+        mergeMessages(batch.filter((m) => m.senderUserId === friendUserId || m.receiverUserId === friendUserId));
+        const fromFriend = batch.filter((m) => m.senderUserId === friendUserId);
+        if (fromFriend.length) markRead(fromFriend[fromFriend.length - 1].id);
+        syncCursorRef.current = data.nextCursor ?? syncCursorRef.current;
+        hasMore = Boolean(data.hasMore);
+      }
+    } catch {
+      // retried on the next tick
+    } finally {
+      syncingRef.current = false;
+    }
+  }
+
+  async function fetchOlderMessages() {
+    if (!olderCursor || loadingOlder) return;
+    setLoadingOlder(true);
+    try {
+      const { data } = await api.get("/api/chat/messages", {
+        params: { userId: friendUserId, before: olderCursor },
+      });
+      mergeMessages(data.messages || []);
+      setOlderCursor(data.nextCursor ?? null);
+    } catch {
+      toast.error("Could not load older messages");
+    } finally {
+      setLoadingOlder(false);
+    }
+  }
+
   async function sendMessage(type = "TEXT", content = "", fileUrl = "") {
     if (!friendUserId) return;
     if (!content && !fileUrl) return;
@@ -226,8 +306,11 @@ export default function ChatPage() {
     return "audio/webm";
   }
 
-  async function fetchAttachmentBlob(fileUrl, messageType = "", fileName = "") {
-    const { data, headers } = await api.get(fileUrl, { responseType: "blob" });
+  async function fetchAttachmentBlob(fileUrl, messageType = "", fileName = "", variant = null) {
+    const { data, headers } = await api.get(fileUrl, {
+      responseType: "blob",
+      params: variant ? { variant } : undefined,
+    });
     const rawMime = headers["content-type"] || data.type || "application/octet-stream";
 
     let effectiveBlob = data;
@@ -242,15 +325,22 @@ export default function ChatPage() {
     }
 
     const blobUrl = URL.createObjectURL(effectiveBlob);
-    setAttachmentMap((prev) => ({ ...prev, [fileUrl]: { url: blobUrl, mimeType } }));
+    const previous = attachmentMapRef.current[fileUrl];
+    if (previous) URL.revokeObjectURL(previous.url);
+    setAttachmentMap((prev) => ({ ...prev, [fileUrl]: { url: blobUrl, mimeType, variant } }));
     return { blobUrl, mimeType };
   }
 
+  function bubbleVariant(message) {
+    // Bubbles only need a small rendition; the original is fetched when the preview or download is opened.
+    return message.type === "IMAGE" && !isLikelyVideoFile(message.content || "") ? "thumb" : null;
+  }
+
   async function openAttachment(message) {
     try {
       const cached = attachmentMap[message.fileUrl];
       const blobUrl =
-        cached?.url ||
+        (!cached?.variant && cached?.url) ||
         (await fetchAttachmentBlob(message.fileUrl, message.type, message.content || "")).blobUrl;
       const link = document.createElement("a");
       link.href = blobUrl;
@@ -265,7 +355,7 @@ export default function ChatPage() {
 
   async function openAttachmentPreview(message) {
     try {
-      const cached = attachmentMap[message.fileUrl];
+      const cached = attachmentMap[message.fileUrl]?.variant ? null : attachmentMap[message.fileUrl];
       const fetched = cached
         ? null
         : await fetchAttachmentBlob(message.fileUrl, message.type, message.content || "");
@@ -369,6 +459,7 @@ export default function ChatPage() {
       connectHeaders: token ? { Authorization: `Bearer ${token}` } : {},
       reconnectDelay: 3000,
       onConnect: () => {
+        syncMessages();
         client.subscribe("/user/queue/messages", (frame) => {
           try {
             const payload = JSON.parse(frame.body);
@@ -376,12 +467,36 @@ export default function ChatPage() {
               payload.senderUserId === friendUserId || payload.receiverUserId === friendUserId;
             if (involved) {
               mergeMessages([payload]);
+              if (payload.senderUserId === friendUserId) markRead(payload.id);
+            } else if (payload.senderUserId !== getAuth()?.userId) {
+              markDelivered(payload);
+            }
+          } catch {
+            // ignore malformed payload
+          }
+        });
+        client.subscribe("/user/queue/receipts", (frame) => {
+          try {
+            const payload = JSON.parse(frame.body);
+            if (payload.userId === friendUserId) {
+              mergeReceipts(payload.deliveredThroughId, payload.readThroughId);
+            }
+          } catch {
+            // ignore malformed payload
+          }
+        });
+        client.subscribe("/user/queue/presence", (frame) => {
+          try {
+            const payload = JSON.parse(frame.body);
+            if (payload.userId === friendUserId) {
+              setIsFriendOnline(Boolean(payload.online));
+              setFriendLastSeenAt(payload.lastSeenAt || null);
             }
           } catch {
             // ignore malformed payload
           }
         });
-        client.subscribe("/topic/typing", (frame) => {
+        client.subscribe("/user/queue/typing", (frame) => {
           try {
             const payload = JSON.parse(frame.body);
             if (payload.senderUserId === friendUserId) {
@@ -406,9 +521,14 @@ export default function ChatPage() {
   }, [attachmentMap]);
 
   useEffect(() => {
-    fetchMessages();
+    setMessages([]);
+    setOlderCursor(null);
+    firstPageLoadedRef.current = false;
+    setPeerReceipts({ deliveredThroughId: 0, readThroughId: 0 });
+    syncCursorRef.current = null;
+    initSyncCursor().then(fetchMessages);
     connectSocket();
-    const poll = setInterval(fetchMessages, 4000);
+    const poll = setInterval(syncMessages, 4000);
     return () => {
       clearInterval(poll);
       if (typingHideRef.current) clearTimeout(typingHideRef.current);
@@ -426,7 +546,7 @@ export default function ChatPage() {
     );
     previewableMessages.forEach((msg) => {
       if (!attachmentMap[msg.fileUrl]) {
-        fetchAttachmentBlob(msg.fileUrl, msg.type, msg.content || "").catch(() => {
+        fetchAttachmentBlob(msg.fileUrl, msg.type, msg.content || "", bubbleVariant(msg)).catch(() => {
           // ignore
         });
       }
@@ -434,8 +554,7 @@ export default function ChatPage() {
   }, [sortedMessages, attachmentMap]);
 
   useEffect(() => {
-    let timer;
-    async function tickPresence() {
+    async function loadPresence() {
       try {
         const { data } = await api.get("/api/users/status", { params: { userId: friendUserId } });
         setIsFriendOnline(Boolean(data.online));
@@ -445,9 +564,7 @@ export default function ChatPage() {
         setFriendLastSeenAt(null);
       }
     }
-    tickPresence();
-    timer = setInterval(tickPresence, 8000);
-    return () => clearInterval(timer);
+    loadPresence();
   }, [friendUserId]);
 
   useEffect(() => {
@@ -497,6 +614,13 @@ export default function ChatPage() {
 
       <main className="flex-grow-1 overflow-auto p-3 p-md-4 bg-slate-50 chat-main-scroll">
         <div className="mx-auto message-wrap">
+          {olderCursor && (
+            <div className="text-center mb-2">
+              <button className="btn btn-outline-secondary btn-sm" disabled={loadingOlder} onClick={fetchOlderMessages}>
+                {loadingOlder ? "Loading..." : "Load older messages"}
+              </button>
+            </div>
+          )}
           {sortedMessages.map((msg) => {
             const mine = msg.receiverUserId === friendUserId;
             return (
@@ -555,7 +679,14 @@ export default function ChatPage() {
                   ) : (
                     <span>{msg.content}</span>
                   )}
-                  <div className="message-time">{new Date(msg.sentAt).toLocaleTimeString()}</div>
+                  <div className="message-time">
+                    {new Date(msg.sentAt).toLocaleTimeString()}
+                    {mine && (
+                      <span className={`message-ticks ${msg.id <= peerReceipts.readThroughId ? "read" : ""}`}>
+                        {msg.id <= peerReceipts.deliveredThroughId ? "✓✓" : "✓"}
+                      </span>
+                    )}
+                  </div>
                 </div>
               </div>
             );
@@ -37,8 +37,11 @@ export default function DashboardPage() {
   const [me, setMe] = useState(null);
   const [searchUserId, setSearchUserId] = useState("");
   const [searchResult, setSearchResult] = useState(null);
+  const [suggestions, setSuggestions] = useState([]);
   const [pendingRequests, setPendingRequests] = useState([]);
   const [friends, setFriends] = useState([]);
+  const [conversations, setConversations] = useState([]);
+  const [friendPresence, setFriendPresence] = useState({});
   const [sidebarOpen, setSidebarOpen] = useState(false);
   const [settings, setSettings] = useState({
     sounds: true,
@@ -52,16 +55,28 @@ export default function DashboardPage() {
     []
   );
 
+  async function loadFriendPresence() {
+    try {
+      const { data } = await api.get("/api/users/status/friends");
+      setFriendPresence(Object.fromEntries(data.map((status) => [status.userId, status])));
+    } catch {
+      // presence is best effort
+    }
+  }
+
   async function loadData() {
     try {
-      const [meRes, pendingRes, friendsRes] = await Promise.all([
+      const [meRes, pendingRes, friendsRes, inboxRes] = await Promise.all([
         api.get("/api/users/me"),
         api.get("/api/friends/requests"),
         api.get("/api/friends"),
+        api.get("/api/chat/conversations", { params: { limit: 5 } }),
       ]);
       setMe(meRes.data);
       setPendingRequests(pendingRes.data);
       setFriends(friendsRes.data);
+      setConversations(inboxRes.data.conversations || []);
+      loadFriendPresence();
     } catch (error) {
       const status = error?.response?.status;
       if (status === 401 || status === 403) {
@@ -97,6 +112,23 @@ export default function DashboardPage() {
     localStorage.setItem("chat_theme", theme);
   }, [theme]);
 
+  useEffect(() => {
+    const query = searchUserId.trim();
+    if (!query) {
+      setSuggestions([]);
+      return undefined;
+    }
+    const timer = setTimeout(async () => {
+      try {
+        const { data } = await api.get("/api/users/typeahead", { params: { q: query, limit: 8 } });
+        setSuggestions(Array.isArray(data) ? data : []);
+      } catch {
+        setSuggestions([]);
+      }
+    }, 150);
+    return () => clearTimeout(timer);
+  }, [searchUserId]);
+
   async function searchUser() {
     if (!searchUserId.trim()) return;
     try {
@@ -115,6 +147,7 @@ export default function DashboardPage() {
       toast.success("Friend request sent");
       setSearchResult(null);
       setSearchUserId("");
+      setSuggestions([]);
       await loadData();
     } catch (error) {
       toast.error(error.response?.data?.message || "Could not send request");
@@ -163,16 +196,33 @@ export default function DashboardPage() {
 
     if (activeTab === "search") {
       return (
-        <Card title="Search User By ID">
+        <Card title="Search Users">
           <div className="search-row-light">
             <input
               className="search-input-light"
-              placeholder="Enter user ID (example: USRxxxx)"
+              placeholder="User ID, username or name"
               value={searchUserId}
               onChange={(e) => setSearchUserId(e.target.value)}
             />
             <button className="search-btn-light" onClick={searchUser}>Search</button>
           </div>
+          {!searchResult && suggestions.length > 0 && (
+            <div className="stack-list-light">
+              {suggestions.map((user) => (
+                <button
+                  key={user.userId}
+                  type="button"
+                  className="list-item-light suggestion-item-light"
+                  onClick={() => setSearchResult(user)}
+                >
+                  <div>
+                    <div className="strong-light">{user.displayName} ({user.username})</div>
+                    <div className="muted-light">{user.userId}</div>
+                  </div>
+                </button>
+              ))}
+            </div>
+          )}
           {searchResult && (
             <div className="search-result-light">
               <div>
@@ -214,7 +264,10 @@ export default function DashboardPage() {
               <div key={friend.userId} className="list-item-light">
                 <div>
                   <div className="strong-light">{friend.displayName}</div>
-                  <div className="muted-light">{friend.userId}</div>
+                  <div className="muted-light">
+                    {friend.userId}
+                    {friendPresence[friend.userId]?.online && <span className="text-success ms-2">Online</span>}
+                  </div>
                 </div>
                 <Link className="search-btn-light text-decoration-none" to={`/chat/${friend.userId}`} state={{ friendName: friend.displayName }}>
                   Message
@@ -270,6 +323,27 @@ export default function DashboardPage() {
             ))}
           </div>
         </Card>
+        <Card title="Recent Chats">
+          {conversations.length === 0 && <p className="muted-light">No conversations yet</p>}
+          <div className="stack-list-light">
+            {conversations.map((conversation) => (
+              <Link
+                key={conversation.peerUserId}
+                className="list-item-light text-decoration-none"
+                to={`/chat/${conversation.peerUserId}`}
+                state={{ friendName: conversation.peerDisplayName }}
+              >
+                <div>
+                  <div className="strong-light">{conversation.peerDisplayName}</div>
+                  <div className="muted-light">{conversation.lastMessagePreview}</div>
+                </div>
+                {conversation.unreadCount > 0 && (
+                  <span className="badge bg-primary rounded-pill">{conversation.unreadCount}</span>
+                )}
+              </Link>
+            ))}
+          </div>
+        </Card>
         <Card title="Quote of the Session">
           <blockquote className="dashboard-quote">"{quoteOfTheSession.text}"</blockquote>
           <div className="dashboard-quote-author">- {quoteOfTheSession.author}</div>
@@ -320,7 +394,7 @@ export default function DashboardPage() {
           </button>
           <input
             className="dashboard-search-light"
-            placeholder="Search User ID and press Enter"
+            placeholder="Search users and press Enter"
             value={searchUserId}
             onChange={(e) => setSearchUserId(e.target.value)}
             onKeyDown={(e) => e.key === "Enter" && goTab("search")}